@@ -1,6 +1,8 @@
 package codegen;
 
+import java.util.Arrays;
 import java.util.List;
+import lexer.Token;
 import lexer.TokenType;
 import parser.*;
 import parser.exprs.*;
@@ -16,6 +18,159 @@ public class CodeGenerator {
         return builder.toString();
     }
 
+    // same output from a flat Ast. The tree is walked in node order with a stack of the open nodes
+    // instead of recursion: enter() writes what comes before a node's children, afterChild() what
+    // goes between them and leave() what closes the node.
+    public String generate(Ast ast) {
+        int[] open = new int[16];
+        int depth = 1;
+        int node = ast.firstChild(0);
+        while (true) {
+            if (node >= 0) {
+                enter(ast, node);
+                if (depth == open.length) {
+                    open = Arrays.copyOf(open, depth * 2);
+                }
+                open[depth++] = node;
+                node = ast.firstChild(node);
+            } else if (depth > 1) {
+                int done = open[--depth];
+                leave(ast, done);
+                node = ast.nextSibling(done);
+                afterChild(ast, open[depth - 1], done, node);
+            } else {
+                return builder.toString();
+            }
+        }
+    }
+
+    private void enter(Ast ast, int node) {
+        switch (ast.kind(node)) {
+            case Ast.LITERAL:
+                TokenType type = ast.op(node);
+                switch (type) {
+                    case STRING_LITERALS:
+                        builder.append("\"").append(ast.getString(node)).append("\"");
+                        break;
+                    case FLOAT_LITERALS:
+                    case DOUBLE_LITERALS:
+                        builder.append(ast.getDouble(node));
+                        break;
+                    case CHAR_LITERALS:
+                        builder.append("\"").append(ast.getChar(node)).append("\"");
+                        break;
+                    case BOOLEAN_LITERALS:
+                        builder.append(ast.getBoolean(node));
+                        break;
+                    case NUMBER_LITERALS:
+                        builder.append(ast.getLong(node));
+                        break;
+                    default:
+                        builder.append("/* Unsupported literal */").append(type).append(" */");
+                }
+                break;
+            case Ast.VARIABLE:
+                builder.append(ast.name(node));
+                break;
+            case Ast.BINARY:
+            case Ast.GROUPING:
+                builder.append("(");
+                break;
+            case Ast.UNARY:
+                builder.append("(").append(Token.spelling(ast.op(node)));
+                break;
+            case Ast.ASSIGNMENT:
+                builder.append(ast.name(node)).append(" ").append(Token.spelling(ast.op(node))).append(" ");
+                break;
+            case Ast.ARRAY_LITERAL:
+                builder.append("[");
+                break;
+            case Ast.NEW_ARRAY:
+                builder.append("Array(");
+                break;
+            case Ast.VAR:
+                builder.append("let ").append(ast.name(node));
+                if (ast.firstChild(node) >= 0) {
+                    builder.append(" = ");
+                }
+                break;
+            case Ast.BLOCK:
+                builder.append("{\n");
+                break;
+            case Ast.IF:
+                builder.append("if (");
+                break;
+            case Ast.WHILE:
+                builder.append("while (");
+                break;
+            case Ast.PRINT:
+                builder.append("console.log(");
+                break;
+        }
+    }
+
+    // next is the child after the one just written, -1 after the last
+    private void afterChild(Ast ast, int node, int child, int next) {
+        boolean first = child == ast.firstChild(node);
+        switch (ast.kind(node)) {
+            case Ast.BINARY:
+                if (first) {
+                    builder.append(" ").append(Token.spelling(ast.op(node))).append(" ");
+                }
+                break;
+            case Ast.ARRAY_LITERAL:
+                if (next >= 0) {
+                    builder.append(", ");
+                }
+                break;
+            case Ast.NEW_ARRAY:
+                if (next >= 0) {
+                    builder.append(").fill().map(() => Array(");
+                } else {
+                    builder.append(").fill(null)").append(")".repeat(ast.childCount(node) - 1));
+                }
+                break;
+            case Ast.IF:
+                if (first) {
+                    builder.append(") ");
+                } else if (next >= 0) {
+                    builder.append(" else ");
+                }
+                break;
+            case Ast.WHILE:
+                if (first) {
+                    builder.append(") ");
+                }
+                break;
+        }
+    }
+
+    private void leave(Ast ast, int node) {
+        switch (ast.kind(node)) {
+            case Ast.BINARY:
+            case Ast.UNARY:
+            case Ast.GROUPING:
+                builder.append(")");
+                break;
+            case Ast.ARRAY_LITERAL:
+                builder.append("]");
+                break;
+            case Ast.POSTFIX:
+                builder.append(Token.spelling(ast.op(node)));
+                break;
+            case Ast.VAR:
+            case Ast.EXPR_STMT:
+                builder.append(";\n");
+                break;
+            case Ast.BLOCK:
+                builder.append("}\n");
+                break;
+            case Ast.PRINT:
+                builder.append(");\n");
+                break;
+        }
+    }
+
     private String generateMultiDimArray(List<Expr> dims, int index) {
         StringBuilder result = new StringBuilder();
 
@@ -47,123 +202,163 @@ public class CodeGenerator {
     }
 
     private void emitExpr(Expr expr) {
-        if (expr instanceof LiteralExpr lit) {
-            Object value = lit.getValue();
-            TokenType type = lit.getTokenType();
-            switch (type) {
-                case STRING_LITERALS:
-                    builder.append("\"").append(value).append("\"");
-                    break;
-                case FLOAT:
-                    builder.append(value).append("f");
-                    break;
-                case BOOLEAN:
-                    builder.append(value);
-                    break;
-                case NUMBER_LITERALS:
-                    builder.append(value);
-                    break;
-                default:
-                    builder.append("/* Unsupported literal */").append(type).append(" */");
+        if (expr == null) {
+            return;
+        }
+        switch (expr.kind()) {
+            case Expr.LITERAL: {
+                LiteralExpr lit = (LiteralExpr) expr;
+                TokenType type = lit.getTokenType();
+                switch (type) {
+                    case STRING_LITERALS:
+                        builder.append("\"").append(lit.getString()).append("\"");
+                        break;
+                    case FLOAT_LITERALS:
+                    case DOUBLE_LITERALS:
+                        builder.append(lit.getDouble());
+                        break;
+                    case CHAR_LITERALS:
+                        builder.append("\"").append(lit.getChar()).append("\"");
+                        break;
+                    case BOOLEAN_LITERALS:
+                        builder.append(lit.getBoolean());
+                        break;
+                    case NUMBER_LITERALS:
+                        builder.append(lit.getLong());
+                        break;
+                    default:
+                        builder.append("/* Unsupported literal */").append(type).append(" */");
+                }
+                break;
             }
-
-        } else if (expr instanceof VariableExpr var) {
-            builder.append(var.getVar());
-        } else if (expr instanceof BinaryExpr bin) {
-            builder.append("(");
-            emitExpr(bin.getLeft());
-            builder.append(" ").append(bin.getOperator().getValue()).append(" ");
-            emitExpr(bin.getRight());
-            builder.append(")");
-        } else if (expr instanceof UnaryExpr unary) {
-            builder.append("(");
-            builder.append(unary.getOperator().getValue());
-            emitExpr(unary.getRight());
-            builder.append(")");
-        } else if (expr instanceof AssignmentExpr assign) {
-            builder.append(assign.getName().getValue())
-                   .append(" ")
-                   .append(assign.getAssign().getValue()) // should usually be '='
-                   .append(" ");
-            emitExpr(assign.getRight());
-        } else if (expr instanceof ArrayLiteralExpr arrayLit) {
-            builder.append("[");
-            List<Expr> elements = arrayLit.getElements();
-            for (int i = 0; i < elements.size(); i++) {
-                emitExpr(elements.get(i));
-                if (i < elements.size() - 1) builder.append(", ");
+            case Expr.VARIABLE:
+                builder.append(((VariableExpr) expr).getVar());
+                break;
+            case Expr.BINARY: {
+                BinaryExpr bin = (BinaryExpr) expr;
+                builder.append("(");
+                emitExpr(bin.getLeft());
+                builder.append(" ").append(bin.getOperator().getValue()).append(" ");
+                emitExpr(bin.getRight());
+                builder.append(")");
+                break;
             }
-            builder.append("]");
-        } else if (expr instanceof PostfixExpr post) {
-            emitExpr(post.getOperand());
-            builder.append(post.getOperator().getValue()); // '++' or '--'
-        } else if (expr instanceof GroupingExpr group) {
-            builder.append("(");
-            emitExpr(group.getExpr());
-            builder.append(")");
-        } else if (expr instanceof NewArrayExpr newArr) {
-            List<Expr> dims = newArr.getDimensions();
-            if (dims.size() == 1) {
-                //1D arrays
-                builder.append("Array(");
+            case Expr.UNARY: {
+                UnaryExpr unary = (UnaryExpr) expr;
+                builder.append("(");
+                builder.append(unary.getOperator().getValue());
+                emitExpr(unary.getRight());
+                builder.append(")");
+                break;
+            }
+            case Expr.ASSIGNMENT: {
+                AssignmentExpr assign = (AssignmentExpr) expr;
+                builder.append(assign.getName().getValue())
+                       .append(" ")
+                       .append(assign.getAssign().getValue()) // should usually be '='
+                       .append(" ");
+                emitExpr(assign.getRight());
+                break;
+            }
+            case Expr.ARRAY_LITERAL: {
+                builder.append("[");
+                List<Expr> elements = ((ArrayLiteralExpr) expr).getElements();
+                for (int i = 0; i < elements.size(); i++) {
+                    emitExpr(elements.get(i));
+                    if (i < elements.size() - 1) builder.append(", ");
+                }
+                builder.append("]");
+                break;
+            }
+            case Expr.POSTFIX: {
+                PostfixExpr post = (PostfixExpr) expr;
+                emitExpr(post.getOperand());
+                builder.append(post.getOperator().getValue()); // '++' or '--'
+                break;
+            }
+            case Expr.GROUPING:
+                builder.append("(");
+                emitExpr(((GroupingExpr) expr).getExpr());
+                builder.append(")");
+                break;
+            case Expr.NEW_ARRAY: {
+                List<Expr> dims = ((NewArrayExpr) expr).getDimensions();
+                if (dims.size() == 1) {
+                    //1D arrays
+                    builder.append("Array(");
 
-                //save builder
-                StringBuilder tempBuilder = new StringBuilder();
-                StringBuilder oldBuilder = builder;
-                builder = tempBuilder;
-                
-                emitExpr(dims.get(0));
-
-                //restore & use dims val
-                String dimension = tempBuilder.toString();
-                builder = oldBuilder;
-                builder.append(dimension);
-                builder.append(").fill(null)");
-            } else {
-                //Mult-D arrays
-                String result = generateMultiDimArray(dims, 0);
-                builder.append(result);
+                    //save builder
+                    StringBuilder tempBuilder = new StringBuilder();
+                    StringBuilder oldBuilder = builder;
+                    builder = tempBuilder;
+                    
+                    emitExpr(dims.get(0));
+
+                    //restore & use dims val
+                    String dimension = tempBuilder.toString();
+                    builder = oldBuilder;
+                    builder.append(dimension);
+                    builder.append(").fill(null)");
+                } else {
+                    //Mult-D arrays
+                    String result = generateMultiDimArray(dims, 0);
+                    builder.append(result);
+                }
+                break;
             }
         }
     }
 
     private void emitStmt(Stmt stmt){
-        if (stmt instanceof VarStmt varStmt) {
-            builder.append("let ").append(varStmt.getName().getValue());
-            Expr initializer = varStmt.getInitialzer();
-            if (initializer != null) {
-                builder.append(" = ");
-                emitExpr(initializer);
+        switch (stmt.kind()) {
+            case Stmt.VAR: {
+                VarStmt varStmt = (VarStmt) stmt;
+                builder.append("let ").append(varStmt.getName().getValue());
+                Expr initializer = varStmt.getInitialzer();
+                if (initializer != null) {
+                    builder.append(" = ");
+                    emitExpr(initializer);
+                }
+                builder.append(";\n");
+                break;
             }
-            builder.append(";\n");
-        }else if (stmt instanceof ExprStmt exprStmt) {
-            emitExpr(exprStmt.getExpr());
-            builder.append(";\n");
-        } else if (stmt instanceof BlockStmt block) {
-            builder.append("{\n");
-            for (Stmt s : block.getStatements()) {
-                emitStmt(s);
+            case Stmt.EXPR:
+                emitExpr(((ExprStmt) stmt).getExpr());
+                builder.append(";\n");
+                break;
+            case Stmt.BLOCK:
+                builder.append("{\n");
+                for (Stmt s : ((BlockStmt) stmt).getStatements()) {
+                    emitStmt(s);
+                }
+                builder.append("}\n");
+                break;
+            case Stmt.IF: {
+                IfStmt ifStmt = (IfStmt) stmt;
+                builder.append("if (");
+                emitExpr(ifStmt.getCondition());
+                builder.append(") ");
+                emitStmt(ifStmt.getThenBranch());
+            
+                if (ifStmt.getElseBranch() != null) {
+                    builder.append(" else ");
+                    emitStmt(ifStmt.getElseBranch());
+                }
+                break;
             }
-            builder.append("}\n");
-        } else if (stmt instanceof IfStmt ifStmt) {
-            builder.append("if (");
-            emitExpr(ifStmt.getCondition());
-            builder.append(") ");
-            emitStmt(ifStmt.getThenBranch());
-        
-            if (ifStmt.getElseBranch() != null) {
-                builder.append(" else ");
-                emitStmt(ifStmt.getElseBranch());
+            case Stmt.PRINT:
+                builder.append("console.log(");
+                emitExpr(((PrintStmt) stmt).getExpr());
+                builder.append(");\n");
+                break;
+            case Stmt.WHILE: {
+                WhileStmt whileStmt = (WhileStmt) stmt;
+                builder.append("while (");
+                emitExpr(whileStmt.getCondition());
+                builder.append(") ");
+                emitStmt(whileStmt.getBody());
+                break;
             }
-        } else if (stmt instanceof PrintStmt printStmt) {
-            builder.append("console.log(");
-            emitExpr(printStmt.getExpr());
-            builder.append(");\n");
-        } else if (stmt instanceof WhileStmt whileStmt) {
-            builder.append("while (");
-            emitExpr(whileStmt.getCondition());
-            builder.append(") ");
-            emitStmt(whileStmt.getBody());
         }
     }
 }
\ No newline at end of file
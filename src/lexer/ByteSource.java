@@ -0,0 +1,32 @@
+package lexer;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+// a source stored as bytes with every ASCII char in one byte, so the lexer can search it for
+// an ASCII char eight bytes at a time instead of going through charAt
+interface ByteSource extends CharSequence {
+    // first index >= from holding c, or length() if there is none; c must be ASCII
+    int indexOf(char c, int from);
+
+    // word-at-a-time search of bytes[from, to), returns to if target does not occur
+    static int indexOf(ByteBuffer bytes, int from, int to, byte target) {
+        long pattern = (target & 0xFFL) * 0x0101010101010101L;
+        boolean bigEndian = bytes.order() == ByteOrder.BIG_ENDIAN;
+        int i = from;
+        for (; i + 8 <= to; i += 8) {
+            long word = bytes.getLong(i) ^ pattern;
+            // high bit set exactly in the bytes that are zero, i.e. equal to target; no carries cross bytes
+            long found = ~(((word & 0x7F7F7F7F7F7F7F7FL) + 0x7F7F7F7F7F7F7F7FL) | word | 0x7F7F7F7F7F7F7F7FL);
+            if (found != 0) {
+                return i + ((bigEndian ? Long.numberOfLeadingZeros(found) : Long.numberOfTrailingZeros(found)) >>> 3);
+            }
+        }
+        for (; i < to; i++) {
+            if (bytes.get(i) == target) {
+                return i;
+            }
+        }
+        return to;
+    }
+}
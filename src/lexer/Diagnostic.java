@@ -0,0 +1,12 @@
+package lexer;
+
+// a lexer error held back until it is known whether the scan that found it is kept
+class Diagnostic {
+    final int position;
+    final String message;
+
+    Diagnostic(int position, String message) {
+        this.position = position;
+        this.message = message;
+    }
+}
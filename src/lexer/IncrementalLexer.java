@@ -0,0 +1,115 @@
+package lexer;
+
+import java.nio.charset.StandardCharsets;
+
+// re-lexes only the part of a token buffer an edit can affect.
+// The lexer carries no state between tokens, so scanning can restart right after any token
+// that ends before the edit, and stops once it produces a token starting exactly where an
+// old token (shifted by the edit) started: from there on both scans see the same text.
+// Edits inside comments and string literals need no special casing, a comment is skipped
+// as part of the rescan and a literal is one token that gets rescanned whole.
+// offset and removedLength index the source the way its tokens do: bytes for a Utf8Source, which is
+// spliced as bytes so the result is again a Utf8Source, chars for any other source.
+public class IncrementalLexer {
+    // the scanner may look this many chars past the end of a token (the '.' and digit of a number)
+    private static final int LOOKAHEAD = 2;
+
+    private IncrementalLexer() {}
+
+    public static TokenEdit relex(TokenBuffer previous, int offset, int removedLength, String insertedText) {
+        CharSequence oldSource = previous.getSource();
+        if (oldSource == null) {
+            throw new IllegalArgumentException("Incremental lexing needs a buffer from Lexer.tokenizeToBuffer()");
+        }
+        if (offset < 0 || removedLength < 0 || offset + removedLength > oldSource.length()) {
+            throw new IndexOutOfBoundsException("Edit " + offset + "+" + removedLength + " outside source of length " + oldSource.length());
+        }
+
+        CharSequence newSource;
+        int insertedLength;
+        if (oldSource instanceof Utf8Source) {
+            byte[] inserted = insertedText.getBytes(StandardCharsets.UTF_8);
+            newSource = ((Utf8Source) oldSource).splice(offset, removedLength, inserted);
+            insertedLength = inserted.length;
+        } else {
+            newSource = new StringBuilder(oldSource.length() - removedLength + insertedText.length())
+                    .append(oldSource, 0, offset)
+                    .append(insertedText)
+                    .append(oldSource, offset + removedLength, oldSource.length())
+                    .toString();
+            insertedLength = insertedText.length();
+        }
+        int delta = insertedLength - removedLength;
+        int oldEditEnd = offset + removedLength;
+        int newEditEnd = offset + insertedLength;
+
+        // keep every token the scanner finished, lookahead included, before the edit
+        int start = 0;
+        while (start < previous.size() && lexemeEnd(previous, oldSource, start) + LOOKAHEAD <= offset) {
+            start++;
+        }
+        int restart = start == 0 ? 0 : lexemeEnd(previous, oldSource, start - 1);
+
+        TokenBuffer tokens = new TokenBuffer(newSource, previous.getSymbols());
+        for (int i = 0; i < start; i++) {
+            tokens.add(previous.type(i), previous.offset(i), previous.length(i), previous.symbol(i), previous.literal(i));
+        }
+
+        // first old token that lies wholly after the edit, a candidate to resynchronize with
+        int old = start;
+        while (old < previous.size() && lexemeStart(previous, old) < oldEditEnd) {
+            old++;
+        }
+
+        Lexer lexer = new Lexer(newSource, previous.getSymbols());
+        lexer.moveTo(restart);
+        for (TokenType type = lexer.scanNext(); type != TokenType.EOF; type = lexer.scanNext()) {
+            int lexemeStart = lexemeStart(type, lexer.tokenStart);
+            if (lexemeStart >= newEditEnd) {
+                while (old < previous.size() && lexemeStart(previous, old) + delta < lexemeStart) {
+                    old++;
+                }
+                if (old < previous.size() && lexemeStart(previous, old) + delta == lexemeStart) {
+                    int newEnd = tokens.size();
+                    for (int i = old; i < previous.size(); i++) {
+                        tokens.add(previous.type(i), previous.offset(i) + delta, previous.length(i), previous.symbol(i), previous.literal(i));
+                    }
+                    return new TokenEdit(tokens, start, old, newEnd);
+                }
+            }
+            tokens.add(type, lexer.tokenStart, lexer.tokenLength, type == TokenType.IDENTIFIER ? lexer.tokenSymbol : -1, lexer.tokenLiteral);
+        }
+        return new TokenEdit(tokens, start, previous.size(), tokens.size());
+    }
+
+    // string and char literal spans leave out the opening quote
+    private static int lexemeStart(TokenType type, int offset) {
+        return type == TokenType.STRING_LITERALS || type == TokenType.CHAR_LITERALS ? offset - 1 : offset;
+    }
+
+    private static int lexemeStart(TokenBuffer tokens, int i) {
+        return lexemeStart(tokens.type(i), tokens.offset(i));
+    }
+
+    // first position after the token, counting closing quotes and number suffixes
+    private static int lexemeEnd(TokenBuffer tokens, CharSequence source, int i) {
+        int end = tokens.offset(i) + tokens.length(i);
+        switch (tokens.type(i)) {
+            case STRING_LITERALS:
+            case CHAR_LITERALS:
+                return end < source.length() ? end + 1 : end;
+            case NUMBER_LITERALS:
+            case FLOAT_LITERALS:
+            case DOUBLE_LITERALS:
+                if (end < source.length()) {
+                    char suffix = source.charAt(end);
+                    if (suffix == 'f' || suffix == 'F' || suffix == 'd' || suffix == 'D') {
+                        return end + 1;
+                    }
+                }
+                return end;
+            default:
+                return end;
+        }
+    }
+}
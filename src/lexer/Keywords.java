@@ -0,0 +1,60 @@
+package lexer;
+
+// keyword recognition straight from the source span: switch on length, then on the first char,
+// then compare the remaining chars, so no String is built and nothing is hashed
+public final class Keywords {
+    private Keywords() {}
+
+    public static TokenType classify(CharSequence source, int start, int length) {
+        switch (length) {
+            case 2:
+                return match(source, start, "if", TokenType.IF);
+            case 3:
+                switch (source.charAt(start)) {
+                    case 'f': return match(source, start, "for", TokenType.FOR);
+                    case 'i': return match(source, start, "int", TokenType.INT);
+                    case 'n': return match(source, start, "new", TokenType.NEW);
+                    case 'v': return match(source, start, "var", TokenType.VAR);
+                    default: return TokenType.IDENTIFIER;
+                }
+            case 4:
+                switch (source.charAt(start)) {
+                    case 'c': return match(source, start, "char", TokenType.CHAR);
+                    case 'e': return match(source, start, "else", TokenType.ELSE);
+                    case 't': return match(source, start, "true", TokenType.BOOLEAN_LITERALS);
+                    case 'v': return match(source, start, "void", TokenType.VOID);
+                    default: return TokenType.IDENTIFIER;
+                }
+            case 5:
+                switch (source.charAt(start)) {
+                    case 'f':
+                        if (source.charAt(start + 1) == 'l') {
+                            return match(source, start, "float", TokenType.FLOAT);
+                        }
+                        return match(source, start, "false", TokenType.BOOLEAN_LITERALS);
+                    case 'p': return match(source, start, "print", TokenType.PRINT);
+                    case 'w': return match(source, start, "while", TokenType.WHILE);
+                    default: return TokenType.IDENTIFIER;
+                }
+            case 6:
+                return match(source, start, "return", TokenType.RETURN);
+            case 7:
+                switch (source.charAt(start)) {
+                    case 'b': return match(source, start, "boolean", TokenType.BOOLEAN);
+                    case 'p': return match(source, start, "println", TokenType.PRINTLN);
+                    default: return TokenType.IDENTIFIER;
+                }
+            default:
+                return TokenType.IDENTIFIER;
+        }
+    }
+
+    private static TokenType match(CharSequence source, int start, String keyword, TokenType type) {
+        for (int i = 0; i < keyword.length(); i++) {
+            if (source.charAt(start + i) != keyword.charAt(i)) {
+                return TokenType.IDENTIFIER;
+            }
+        }
+        return type;
+    }
+}
@@ -1,154 +1,439 @@
 package lexer;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 
 public class Lexer {
-    String sourceCode;
+    CharSequence sourceCode;
     int position;
-    int lineNumber;
-    int colNumber;
+    // span of the token last returned by scanToken(), plus its symbol id if it is an identifier
+    int tokenStart;
+    int tokenLength;
+    int tokenSymbol;
+    // value of a number token: the long itself, or Double.doubleToRawLongBits for float and double literals
+    long tokenLiteral;
+    private final SymbolPool symbols;
+    // set when scanning UTF-8 bytes, where a non-ASCII char takes several positions
+    private final Utf8Source utf8;
+    // line/column lookup for error messages, only built once an error is reported
+    private final LineTable lines;
+    // next occurrence of the chars that end comment and string bodies, reused until scanning passes it
+    private int nextNewline;
+    private int nextStar;
+    private int nextQuote;
+    private int nextBackslash;
+    private List<Diagnostic> diagnostics;
     private List<Token> tokens = new ArrayList<>();
     
     public List<Token> getTokens() {
         return tokens;
     }
+
+    public SymbolPool getSymbols() {
+        return symbols;
+    }
+
+    public LineTable getLines() {
+        return lines;
+    }
     
-    private static final Map<String, TokenType> keywordMap = new HashMap<>();
-    
+    // ASCII character classes, anything >= 128 goes through the Character.* methods instead
+    private static final byte SYMBOL = 0;
+    private static final byte SPACE = 1;
+    private static final byte DIGIT = 2;
+    private static final byte LETTER = 3;
+    private static final byte QUOTE = 4;
+    private static final byte APOSTROPHE = 5;
+    private static final byte SLASH = 6;
+    private static final byte[] CHAR_CLASS = new byte[128];
+    private static final boolean[] IDENTIFIER_PART = new boolean[128];
+
+    // exact powers of ten, a literal with fewer than 2^53 as digits and at most 22 of them after the point
+    // is one correctly rounded division away from its double value
+    private static final double[] POWERS_OF_TEN = new double[23];
+
+    // operator tables indexed by the first char: the char alone, followed by '=', or doubled
+    private static final TokenType[] SINGLE = new TokenType[128];
+    private static final TokenType[] WITH_EQUALS = new TokenType[128];
+    private static final TokenType[] DOUBLED = new TokenType[128];
+
     static{
-        keywordMap.put("if", TokenType.IF);
-        keywordMap.put("else", TokenType.ELSE);
-        keywordMap.put("while", TokenType.WHILE);
-        keywordMap.put("for", TokenType.FOR);
-        keywordMap.put("return", TokenType.RETURN);
-        keywordMap.put("int", TokenType.INT);
-        keywordMap.put("float", TokenType.FLOAT);
-        keywordMap.put("boolean", TokenType.BOOLEAN);
-        keywordMap.put("char", TokenType.CHAR);
-        keywordMap.put("void", TokenType.VOID);
-        keywordMap.put("true", TokenType.BOOLEAN_LITERALS);
-        keywordMap.put("false", TokenType.BOOLEAN_LITERALS);
-        keywordMap.put("print", TokenType.PRINT);
-        keywordMap.put("println", TokenType.PRINTLN);
-        keywordMap.put("var", TokenType.VAR);
-        keywordMap.put("new", TokenType.NEW);
+        for (char c = 0; c < 128; c++) {
+            if (Character.isWhitespace(c)) {
+                CHAR_CLASS[c] = SPACE;
+            } else if (Character.isDigit(c)) {
+                CHAR_CLASS[c] = DIGIT;
+            } else if (Character.isLetter(c)) {
+                CHAR_CLASS[c] = LETTER;
+            }
+            IDENTIFIER_PART[c] = Character.isLetterOrDigit(c) || c == '_';
+        }
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+        CHAR_CLASS['"'] = QUOTE;
+        CHAR_CLASS['\''] = APOSTROPHE;
+        CHAR_CLASS['/'] = SLASH;
+
+        operator('+', TokenType.PLUS, TokenType.PLUS_EQUALS, TokenType.INCREMENT);
+        operator('-', TokenType.MINUS, TokenType.MINUS_EQUALS, TokenType.DECREMENT);
+        operator('*', TokenType.MULTIPLY, TokenType.MULT_EQUALS, null);
+        operator('/', TokenType.DIVIDE, TokenType.DIV_EQUALS, null);
+        operator('=', TokenType.ASSIGN, TokenType.EQUALS, null);
+        operator('!', TokenType.NOT, TokenType.NOT_EQUALS, null);
+        operator('<', TokenType.LESS_THAN, TokenType.LESS_THAN_EQUALS, null);
+        operator('>', TokenType.GREATER_THAN, TokenType.GREATER_THAN_EQUALS, null);
+        operator('&', TokenType.BITWISE_AND, null, TokenType.AND);
+        operator('|', TokenType.BITWISE_OR, null, TokenType.OR);
+        operator('%', TokenType.MOD, null, null);
+        operator(',', TokenType.COMMA, null, null);
+        operator(';', TokenType.SEMICOLON, null, null);
+        operator('(', TokenType.LEFT_PAREN, null, null);
+        operator(')', TokenType.RIGHT_PAREN, null, null);
+        operator('{', TokenType.LEFT_BRACE, null, null);
+        operator('}', TokenType.RIGHT_BRACE, null, null);
+        operator('[', TokenType.LEFT_BRACKET, null, null);
+        operator(']', TokenType.RIGHT_BRACKET, null, null);
     }
-    
-    public Lexer(String sourceCode){
+
+    private static void operator(char c, TokenType single, TokenType withEquals, TokenType doubled){
+        SINGLE[c] = single;
+        WITH_EQUALS[c] = withEquals;
+        DOUBLED[c] = doubled;
+    }
+
+    // any CharSequence works as input: a String, a CharBuffer, or a MappedSource / Utf8Source over a file
+    public Lexer(CharSequence sourceCode){
+        this(sourceCode, new SymbolPool());
+    }
+
+    // lexers over several files of one compilation share a pool so equal names get equal ids
+    public Lexer(CharSequence sourceCode, SymbolPool symbols){
+        this(sourceCode, symbols, new LineTable(sourceCode));
+    }
+
+    // lexers over parts of one source share its line table
+    Lexer(CharSequence sourceCode, SymbolPool symbols, LineTable lines){
         this.sourceCode = sourceCode;
+        this.symbols = symbols;
+        this.lines = lines;
+        this.utf8 = sourceCode instanceof Utf8Source ? (Utf8Source) sourceCode : null;
         position = 0;
-        lineNumber = 1;
-        colNumber = 1;
+        forgetSearches();
         this.tokens = new ArrayList<>();
     }
     
-    private Character peek(){
+    // '\0' past the end, so callers can compare without boxing or null checks
+    private char peek(){
         if (position + 1 >= sourceCode.length()){
-            return null;
+            return '\0';
         }
         return sourceCode.charAt(position + 1);
     }
+
+    private static boolean isDigit(char c){
+        return c < 128 ? CHAR_CLASS[c] == DIGIT : Character.isDigit(c);
+    }
+
+    private static boolean isIdentifierPart(char c){
+        return c < 128 ? IDENTIFIER_PART[c] : Character.isLetterOrDigit(c);
+    }
     
     private void advance(){
+        if (position < sourceCode.length()){
+            position++;
+        }
+    }
+
+    // moves past one whole char, all bytes of it in a UTF-8 source
+    private void advanceChar(){
         if (position >= sourceCode.length()){return;}
-        if (sourceCode.charAt(position) == '\n'){
-            lineNumber++;
-            colNumber = 1;
-        } else {
-            colNumber++;
+        int end = utf8 != null ? utf8.charEnd(position) : position + 1;
+        while (position < end) {
+            advance();
         }
-        position++;
     }
 
+    // eager mode, fills getTokens() with the whole input
     public void tokenize() {
-        while (position < sourceCode.length()) {
-            scanToken();
+        for (Token token = nextToken(); token.getType() != TokenType.EOF; token = nextToken()) {
+            tokens.add(token);
+        }
+    }
+
+    // pull mode, scans just far enough to return the next token, EOF once the input is used up
+    public Token nextToken() {
+        TokenType type = scanNext();
+        if (type == TokenType.EOF) {
+            return Token.fixed(TokenType.EOF);
+        }
+        return Token.of(type, sourceCode, tokenStart, tokenLength, tokenSymbol, tokenLiteral, symbols);
+    }
+
+    // packed mode, fills a TokenBuffer without creating any Token objects
+    public TokenBuffer tokenizeToBuffer() {
+        TokenBuffer buffer = new TokenBuffer(sourceCode, symbols);
+        for (TokenType type = scanNext(); type != TokenType.EOF; type = scanNext()) {
+            buffer.add(type, tokenStart, tokenLength, type == TokenType.IDENTIFIER ? tokenSymbol : -1, tokenLiteral);
+        }
+        return buffer;
+    }
+
+    // skips to the next token and leaves its span in tokenStart/tokenLength/tokenSymbol
+    TokenType scanNext() {
+        return scanNext(sourceCode.length());
+    }
+
+    // same, but gives up with EOF once no token starts before end
+    TokenType scanNext(int end) {
+        while (position < end) {
+            TokenType type = scanToken();
+            if (type != null) {
+                return type;
+            }
+        }
+        return TokenType.EOF;
+    }
+
+    // restarts scanning at a position where a token scan would begin
+    void moveTo(int offset) {
+        position = offset;
+        forgetSearches();
+    }
+
+    private void forgetSearches() {
+        nextNewline = -1;
+        nextStar = -1;
+        nextQuote = -1;
+        nextBackslash = -1;
+    }
+
+    // first index >= from holding the ASCII char c, or the source length; String.indexOf and the byte
+    // sources search in bulk, anything else falls back to charAt
+    static int indexOf(CharSequence source, char c, int from) {
+        if (source instanceof String) {
+            int i = ((String) source).indexOf(c, from);
+            return i < 0 ? source.length() : i;
+        }
+        if (source instanceof ByteSource) {
+            return ((ByteSource) source).indexOf(c, from);
         }
+        int i = from;
+        while (i < source.length() && source.charAt(i) != c) {
+            i++;
+        }
+        return i;
     }
 
-    private void scanToken() {
+    private int find(char c, int from) {
+        return indexOf(sourceCode, c, from);
+    }
+
+    private int nextNewline(int from) {
+        if (nextNewline < from) {
+            nextNewline = find('\n', from);
+        }
+        return nextNewline;
+    }
+
+    private int nextStar(int from) {
+        if (nextStar < from) {
+            nextStar = find('*', from);
+        }
+        return nextStar;
+    }
+
+    private int nextQuote(int from) {
+        if (nextQuote < from) {
+            nextQuote = find('"', from);
+        }
+        return nextQuote;
+    }
+
+    private int nextBackslash(int from) {
+        if (nextBackslash < from) {
+            nextBackslash = find('\\', from);
+        }
+        return nextBackslash;
+    }
+
+    // 1-based column of offset in chars, a multi-byte UTF-8 char counts once
+    private int column(int offset) {
+        return 1 + chars(lines.lineStart(lines.line(offset)), offset);
+    }
+
+    // chars in [from, to), fewer than positions when a UTF-8 source holds multi-byte chars
+    private int chars(int from, int to) {
+        if (utf8 == null) {
+            return to - from;
+        }
+        int count = 0;
+        for (int i = from; i < to; i++) {
+            if (!utf8.isContinuation(i)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    // errors are kept instead of printed, for scans whose output may be thrown away
+    void collectDiagnostics() {
+        diagnostics = new ArrayList<>();
+    }
+
+    List<Diagnostic> getDiagnostics() {
+        return diagnostics;
+    }
+
+    private void error(String message) {
+        if (diagnostics != null) {
+            diagnostics.add(new Diagnostic(position, message));
+        } else {
+            System.err.println(message);
+        }
+    }
+
+    public TokenStream stream() {
+        return new TokenStream(this);
+    }
+
+    // scans one step of input, returns null when it only skipped whitespace or a comment
+    private TokenType scanToken() {
         char current = sourceCode.charAt(position);
+        tokenStart = position;
+        tokenLiteral = 0;
     
+        if (current >= 128) {
+            return scanUnicode(current);
+        }
+
+        switch (CHAR_CLASS[current]) {
+            case SPACE:
+                skipWhitespace();
+                return null;
+            case DIGIT:
+                return scanNumber();
+            case LETTER:
+                return scanIdentifier();
+            case QUOTE:
+                return scanString();
+            case APOSTROPHE:
+                return scanCharLiteral();
+            case SLASH:
+                return scanSlash();
+            default:
+                return scanSymbol();
+        }
+    }
+
+    // slow path for non-ASCII input, same rules through the Character.* methods
+    private TokenType scanUnicode(char current) {
         if (Character.isWhitespace(current)) {
-            advance();
+            advanceChar();
         } else if (Character.isDigit(current)) {
-            scanNumber();
+            return scanNumber();
         } else if (Character.isLetter(current)) {
-            scanIdentifier();
-        } else if (current == '"') {
-            scanString();
-        } else if (current == '\'') {
-            scanCharLiteral();
-        } else if (current == '/') {
-            // special handling for comments
-            if (position + 1 < sourceCode.length()) {
-                char next = sourceCode.charAt(position + 1);
+            return scanIdentifier();
+        } else {
+            return scanSymbol();
+        }
+        return null;
+    }
+
+    private void skipWhitespace() {
+        while (position < sourceCode.length()) {
+            char c = sourceCode.charAt(position);
+            if (c >= 128 || CHAR_CLASS[c] != SPACE) {
+                return;
+            }
+            advance();
+        }
+    }
+
+    private TokenType scanSlash() {
+        // special handling for comments
+        if (position + 1 < sourceCode.length()) {
+            char next = sourceCode.charAt(position + 1);
+            
+            if (next == '/') {
+                // single line comment
+                advance(); // Skipping
+                advance(); 
+                position = nextNewline(position);
+                //newline taken as whitespace, ignored
+            } else if (next == '*') {
+                // multi-line comment
+                advance(); // Skip 
+                advance(); // Skip *
                 
-                if (next == '/') {
-                    // single line comment
-                    advance(); // Skipping
-                    advance(); 
-                    while (position < sourceCode.length() && sourceCode.charAt(position) != '\n') {
-                        advance();
+                // an unclosed comment stops short of the last char, which is then scanned as a token
+                int last = utf8 != null ? utf8.charStart(sourceCode.length() - 1) : sourceCode.length() - 1;
+                boolean closed = false;
+                while (position < last) {
+                    int star = nextStar(position);
+                    if (star >= last) {
+                        position = last;
+                        break;
                     }
-                    //newline taken as whitespace, ignored
-                } else if (next == '*') {
-                    // multi-line comment
-                    advance(); // Skip 
+                    position = star;
                     advance(); // Skip *
-                    
-                    boolean closed = false;
-                    while (position + 1 < sourceCode.length()) {
-                        if (sourceCode.charAt(position) == '*' && 
-                            position + 1 < sourceCode.length() && 
-                            sourceCode.charAt(position + 1) == '/') {
-                            advance(); // Skip *
-                            advance();
-                            closed = true;
-                            break;
-                        }
+                    if (sourceCode.charAt(position) == '/') {
                         advance();
+                        closed = true;
+                        break;
                     }
-                    
-                    if (!closed) {
-                        System.err.println("ERROR: Unclosed multi-line comment at line " + lineNumber);
-                    }
-                } else {
-                    // not comment, treat as a normal symbol
-                    scanSymbol();
+                }
+                
+                if (!closed) {
+                    error("ERROR: Unclosed multi-line comment at line " + lines.line(position));
                 }
             } else {
-                // just a single / at the eof
-                scanSymbol();
+                // not comment, treat as a normal symbol
+                return scanSymbol();
             }
         } else {
-            scanSymbol();
+            // just a single / at the eof
+            return scanSymbol();
         }
+        return null;
     }
 
-    private void scanNumber() {
-        StringBuilder number = new StringBuilder();
+    private TokenType scanNumber() {
+        int start = position;
         boolean floatPoint = false;
         char current = sourceCode.charAt(position);
+        // the value is built from the digits as they go by, the point is left out and counted instead
+        long digits = 0;
+        int fractionDigits = 0;
+        boolean overflow = false;
     
-        while (position < sourceCode.length() && (Character.isDigit(current) || (current == '.' && !floatPoint))) {
+        while (position < sourceCode.length() && (isDigit(current) || (current == '.' && !floatPoint))) {
             if (current == '.') {
                 floatPoint = true;
-                if (position + 1 >= sourceCode.length() || !Character.isDigit(sourceCode.charAt(position + 1))) {
-                    System.err.println("ERROR: No digits after decimal, invalid float at line " + lineNumber + ", col " + colNumber);
+                if (position + 1 >= sourceCode.length() || !isDigit(sourceCode.charAt(position + 1))) {
+                    error("ERROR: No digits after decimal, invalid float at line " + lines.line(position) + ", col " + column(position));
                     break;
                 }
+            } else if (current < 128 || utf8 == null || !utf8.isContinuation(position)) {
+                int digit = current < 128 ? current - '0' : Character.digit(current, 10);
+                if (digits > (Long.MAX_VALUE - digit) / 10) {
+                    overflow = true;
+                } else {
+                    digits = digits * 10 + digit;
+                    if (floatPoint) {
+                        fractionDigits++;
+                    }
+                }
             }
     
-            number.append(current);
             advance();
             if (position < sourceCode.length()) {
                 current = sourceCode.charAt(position);
             }
         }
+        // the span covers the digits only, a type suffix is not part of the value
+        tokenLength = position - start;
 
         TokenType numberType = floatPoint ? TokenType.DOUBLE_LITERALS : TokenType.NUMBER_LITERALS;
         if (position < sourceCode.length()){
@@ -158,242 +443,189 @@ public class Lexer {
             } else if (current == 'd' || current == 'D'){
                 numberType = TokenType.DOUBLE_LITERALS;
                 advance();
-            } else {
-                numberType = floatPoint ? TokenType.DOUBLE_LITERALS : TokenType.NUMBER_LITERALS;
             }
+        }
+
+        if (numberType == TokenType.NUMBER_LITERALS) {
+            if (overflow) {
+                error("ERROR: Integer literal too large at line " + lines.line(start) + ", col " + column(start));
+            }
+            tokenLiteral = digits;
+        } else if (!overflow && digits < 1L << 53 && fractionDigits < POWERS_OF_TEN.length) {
+            tokenLiteral = Double.doubleToRawLongBits(digits / POWERS_OF_TEN[fractionDigits]);
         } else {
-            numberType = floatPoint ? TokenType.DOUBLE_LITERALS : TokenType.NUMBER_LITERALS;
+            tokenLiteral = literal(numberType, sourceCode, start, tokenLength);
         }
+        return numberType;
+    }
 
-        tokens.add(new Token(numberType, number.toString()));
+    // value of a number literal from its text, for tokens that did not come out of scanNumber
+    static long literal(TokenType type, CharSequence source, int offset, int length) {
+        switch (type) {
+            case NUMBER_LITERALS:
+                return Long.parseLong(source.subSequence(offset, offset + length).toString());
+            case FLOAT_LITERALS:
+            case DOUBLE_LITERALS:
+                return Double.doubleToRawLongBits(Double.parseDouble(source.subSequence(offset, offset + length).toString()));
+            default:
+                return 0;
+        }
     }
 
-    private void scanIdentifier() {
-        StringBuilder identifier = new StringBuilder();
+    private TokenType scanIdentifier() {
+        int start = position;
         char current = sourceCode.charAt(position);
+        boolean ascii = true;
     
-        while (position < sourceCode.length() && (Character.isLetterOrDigit(current) || current == '_')) {
-            identifier.append(current);
+        while (position < sourceCode.length() && isIdentifierPart(current)) {
+            ascii &= current < 128;
             advance();
             if (position < sourceCode.length()) {
                 current = sourceCode.charAt(position);
             }
         }
     
-        String lexeme = identifier.toString();
-        TokenType type = keywordMap.getOrDefault(lexeme, TokenType.IDENTIFIER);
-        tokens.add(new Token(type, lexeme));
+        tokenLength = position - start;
+        TokenType type = Keywords.classify(sourceCode, start, tokenLength);
+        if (type == TokenType.IDENTIFIER) {
+            // a UTF-8 span holds one position per byte, so a non-ASCII name is decoded before it is interned
+            tokenSymbol = ascii || utf8 == null
+                    ? symbols.intern(sourceCode, start, tokenLength)
+                    : symbols.intern(sourceCode.subSequence(start, position).toString());
+        }
+        return type;
     }
 
-    private void scanString() {
+    private TokenType scanString() {
         advance();
-        StringBuilder str = new StringBuilder();
+        int start = position;
+        tokenStart = start;
     
-        while (position < sourceCode.length() && sourceCode.charAt(position) != '"') {
-            if (sourceCode.charAt(position) == '\\') {
-                advance();
-                if (position < sourceCode.length()) {
-                    char escapeChar = sourceCode.charAt(position);
-                    switch (escapeChar) {
-                        case 'n': str.append('\n'); break;
-                        case 't': str.append('\t'); break;
-                        case 'r': str.append('\r'); break;
-                        case '"': str.append('"'); break;
-                        case '\\': str.append('\\'); break;
-                        default:
-                            System.err.println("ERROR: Invalid escape sequence \\" + escapeChar);
-                            break;
-                    }
-                }
-            } else {
-                str.append(sourceCode.charAt(position));
+        // jump from one quote or backslash to the next, the chars in between need no look
+        while (true) {
+            position = Math.min(nextQuote(position), nextBackslash(position));
+            if (position >= sourceCode.length() || sourceCode.charAt(position) == '"') {
+                break;
+            }
+            advance();
+            if (position < sourceCode.length() && !isEscape(sourceCode.charAt(position), '"')) {
+                error("ERROR: Invalid escape sequence \\" + sourceCode.charAt(position));
             }
             advance();
         }
+        // raw body between the quotes, escapes are resolved by Token.getValue()
+        tokenLength = position - start;
     
         if (position >= sourceCode.length()) {
-            System.err.println("ERROR: Unclosed string literal");
+            error("ERROR: Unclosed string literal");
         } else {
             advance(); // consume closing "
         }
-        tokens.add(new Token(TokenType.STRING_LITERALS, str.toString()));
+        return TokenType.STRING_LITERALS;
     }
 
-    private void scanCharLiteral() {
+    private TokenType scanCharLiteral() {
         advance();
-        StringBuilder charLiteral = new StringBuilder();
+        int start = position;
+        tokenStart = start;
+        boolean empty = false;
     
         if (position < sourceCode.length() && sourceCode.charAt(position) == '\\') {
             advance();
             if (position < sourceCode.length()) {
                 char escapeChar = sourceCode.charAt(position);
-                switch (escapeChar) {
-                    case 'n': charLiteral.append('\n'); break;
-                    case 't': charLiteral.append('\t'); break;
-                    case 'r': charLiteral.append('\r'); break;
-                    case '\'': charLiteral.append('\''); break;
-                    case '\\': charLiteral.append('\\'); break;
-                    default:
-                        System.err.println("ERROR: Invalid escape sequence \\" + escapeChar);
-                        break;
+                if (!isEscape(escapeChar, '\'')) {
+                    error("ERROR: Invalid escape sequence \\" + escapeChar);
+                    empty = true;
                 }
             }
-        } else if (position < sourceCode.length()) {
-            charLiteral.append(sourceCode.charAt(position));
-        } else {
-            System.err.println("ERROR: Empty Character literal");
+        } else if (position >= sourceCode.length()) {
+            error("ERROR: Empty Character literal");
+            empty = true;
         }
     
-        advance();
+        advanceChar();
         if (position < sourceCode.length() && sourceCode.charAt(position) == '\'') {
-            if (charLiteral.length() == 0) {
-                System.err.println("ERROR: Empty character literal");
+            if (empty) {
+                error("ERROR: Empty character literal");
             }
-            tokens.add(new Token(TokenType.CHAR_LITERALS, charLiteral.toString()));
+            tokenLength = position - start;
             advance();
-        } else {
-            System.err.println("ERROR: Unclosed Character literal");
+            return TokenType.CHAR_LITERALS;
         }
+        error("ERROR: Unclosed Character literal");
+        return null;
     }
 
-    private void scanSymbol() {
-    char current = sourceCode.charAt(position);
-    if (current == ';'){
-        tokens.add(new Token(TokenType.SEMICOLON, ";"));
-        advance();
-    } else {
-        switch (current) {
-
-            case '+':
-                if (peek() == '='){
-                    tokens.add(new Token(TokenType.PLUS_EQUALS, "+="));
-                    advance();
-                } else if (peek() == '+'){
-                    tokens.add(new Token(TokenType.INCREMENT, "++"));
-                    advance();
-                } else {
-                    tokens.add(new Token(TokenType.PLUS, "+"));
-                }
-                break;
-
-            case '-':
-                if (peek() == '='){
-                    tokens.add(new Token(TokenType.MINUS_EQUALS, "-="));
-                    advance();
-                } else if (peek() == '-'){
-                    tokens.add(new Token(TokenType.DECREMENT, "--"));
-                    advance();
-                } else {
-                    tokens.add(new Token(TokenType.MINUS, "-"));
-                }
-                break;
-
-            case '=':
-                if (peek() == '='){
-                    tokens.add(new Token(TokenType.EQUALS, "=="));
-                    advance();
-                } else {
-                    tokens.add(new Token(TokenType.ASSIGN, "="));
-                }
-                break;
-
-            case '!':
-                if (peek() == '='){
-                    tokens.add(new Token(TokenType.NOT_EQUALS, "!="));
-                    advance();
-                } else {
-                    tokens.add(new Token(TokenType.NOT, "!"));
-                }
-                break;
-
-            case '&':
-                if (peek() == '&'){
-                    tokens.add(new Token(TokenType.AND, "&&"));
-                    advance();
-                } else {
-                    tokens.add(new Token(TokenType.BITWISE_AND, "&"));
-                }
-                break;
-
-            case '|':
-                if (peek() == '|'){
-                    tokens.add(new Token(TokenType.OR, "||"));
-                    advance();
-                } else {
-                    tokens.add(new Token(TokenType.BITWISE_OR, "|"));
-                }
-                break;
+    private static boolean isEscape(char c, char quote) {
+        return c == 'n' || c == 't' || c == 'r' || c == '\\' || c == quote;
+    }
 
-            case '*':
-                if (peek() == '='){
-                    tokens.add(new Token(TokenType.MULT_EQUALS, "*="));
-                    advance();
-                } else {
-                    tokens.add(new Token(TokenType.MULTIPLY, "*"));
-                }
-                break;
+    // resolves the escapes of a string or char literal body, invalid escapes are dropped
+    static String unescape(CharSequence source, int start, int end, char quote) {
+        int i = start;
+        while (i < end && source.charAt(i) != '\\') {
+            i++;
+        }
+        if (i == end) {
+            return source.subSequence(start, end).toString();
+        }
 
-            case '/':
-                if (peek() == '=') {
-                    tokens.add(new Token(TokenType.DIV_EQUALS, "/="));
-                    advance();
-                } else {
-                    tokens.add(new Token(TokenType.DIVIDE, "/"));
+        // text between escapes is copied in runs through subSequence, which decodes a UTF-8 source
+        StringBuilder str = new StringBuilder(end - start);
+        str.append(source.subSequence(start, i).toString());
+        while (i < end) {
+            if (source.charAt(i) != '\\') {
+                int run = i;
+                while (i < end && source.charAt(i) != '\\') {
+                    i++;
                 }
-                break;
-
-            //less than
-            case '<':
-                if (peek() == '='){
-                    tokens.add(new Token(TokenType.LESS_THAN_EQUALS, "<="));
-                    advance();
-                } else {
-                    tokens.add(new Token(TokenType.LESS_THAN, "<"));
+                str.append(source.subSequence(run, i).toString());
+            } else if (++i < end) {
+                char escapeChar = source.charAt(i++);
+                if (escapeChar >= 128 && source instanceof Utf8Source) {
+                    // the rest of a multi-byte escape char is dropped with it
+                    i = ((Utf8Source) source).charEnd(i - 1);
                 }
-                break;
-            //greater than
-            case '>':
-                if (peek() == '=') {
-                    tokens.add(new Token(TokenType.GREATER_THAN_EQUALS, ">="));
-                    advance();
-                } else {
-                    tokens.add(new Token(TokenType.GREATER_THAN, ">"));
+                switch (escapeChar) {
+                    case 'n': str.append('\n'); break;
+                    case 't': str.append('\t'); break;
+                    case 'r': str.append('\r'); break;
+                    case '\\': str.append('\\'); break;
+                    default:
+                        if (escapeChar == quote) {
+                            str.append(quote);
+                        }
+                        break;
                 }
-                break;
-
-            case ',':
-                tokens.add(new Token(TokenType.COMMA, ","));
-                break;
-
-            case '%':
-                tokens.add(new Token(TokenType.MOD, "%"));
-                break;
+            }
+        }
+        return str.toString();
+    }
 
-            //parenthesis & brackets
-            case '(':
-                tokens.add(new Token(TokenType.LEFT_PAREN, "("));
-                break;
-            case ')':
-                tokens.add(new Token(TokenType.RIGHT_PAREN, ")"));
-                break;
-            case '{':
-                tokens.add(new Token(TokenType.LEFT_BRACE, "{"));
-                break;
-            case '}':
-                tokens.add(new Token(TokenType.RIGHT_BRACE, "}"));
-                break;
-            case '[':
-                tokens.add(new Token(TokenType.LEFT_BRACKET, "["));
-                break;
-            case ']':
-                tokens.add(new Token(TokenType.RIGHT_BRACKET, "]"));
-                break;
-            default:
-                tokens.add(new Token(TokenType.UNKNOWN, Character.toString(current)));
+    private TokenType scanSymbol() {
+        char current = sourceCode.charAt(position);
+        if (current < 128) {
+            char next = peek();
+            TokenType pair = null;
+            if (next == '=') {
+                pair = WITH_EQUALS[current];
+            } else if (next == current) {
+                pair = DOUBLED[current];
+            }
+            if (pair != null) {
+                tokenLength = 2;
+                advance();
+                advance();
+                return pair;
+            }
         }
-        advance();
+
+        TokenType type = current < 128 ? SINGLE[current] : null;
+        advanceChar();
+        tokenLength = position - tokenStart;
+        return type != null ? type : TokenType.UNKNOWN;
     }
-}
 
     public static void main(String[] args) {
 
@@ -405,7 +637,7 @@ public class Lexer {
         lexer.tokenize();
     
         // Print tokens
-        for (Token token : lexer.tokens) {
+        for (Token token : lexer.getTokens()) {
             System.out.println(token);
         }
     }
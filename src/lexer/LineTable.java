@@ -0,0 +1,75 @@
+package lexer;
+
+import java.util.Arrays;
+
+// offset -> line/column lookup for one source, tokens only carry offsets and positions are worked out here
+// the line starts are found on the first lookup, so a source that never reports anything never pays for them
+// lines and columns are 1-based, columns count positions (bytes for a Utf8Source)
+public class LineTable {
+    private final CharSequence source;
+    // offset of the first char of every line, built once and then only read, so lexers on other threads can share it
+    private volatile int[] starts;
+
+    public LineTable(CharSequence source) {
+        this.source = source;
+    }
+
+    public int line(int offset) {
+        int[] starts = starts();
+        int low = 0;
+        int high = starts.length - 1;
+        // last line whose start is <= offset
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (starts[mid] <= offset) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return low + 1;
+    }
+
+    public int column(int offset) {
+        return offset - lineStart(line(offset)) + 1;
+    }
+
+    public int lineStart(int line) {
+        int[] starts = starts();
+        if (line < 1 || line > starts.length) {
+            throw new IllegalArgumentException("Line " + line + " is out of range 1.." + starts.length);
+        }
+        return starts[line - 1];
+    }
+
+    public int lineCount() {
+        return starts().length;
+    }
+
+    private int[] starts() {
+        int[] result = starts;
+        if (result == null) {
+            synchronized (this) {
+                result = starts;
+                if (result == null) {
+                    result = build();
+                    starts = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    private int[] build() {
+        int[] result = new int[64];
+        int count = 1;
+        int length = source.length();
+        for (int newline = Lexer.indexOf(source, '\n', 0); newline < length; newline = Lexer.indexOf(source, '\n', newline + 1)) {
+            if (count == result.length) {
+                result = Arrays.copyOf(result, count * 2);
+            }
+            result[count++] = newline + 1;
+        }
+        return Arrays.copyOf(result, count);
+    }
+}
@@ -0,0 +1,66 @@
+package lexer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// read-only view of a memory-mapped source file, one byte per char (ASCII / Latin-1)
+// the text stays in the page cache instead of being copied into a String on the heap
+public class MappedSource implements ByteSource {
+    private final ByteBuffer bytes;
+    private final int start;
+    private final int end;
+
+    public MappedSource(ByteBuffer bytes) {
+        this(bytes, 0, bytes.limit());
+    }
+
+    private MappedSource(ByteBuffer bytes, int start, int end) {
+        this.bytes = bytes;
+        this.start = start;
+        this.end = end;
+    }
+
+    public static MappedSource map(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Source file too large to map: " + path + " (" + size + " bytes)");
+            }
+            return new MappedSource(channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+        }
+    }
+
+    @Override
+    public int length() {
+        return end - start;
+    }
+
+    @Override
+    public char charAt(int index) {
+        return (char) (bytes.get(start + index) & 0xFF);
+    }
+
+    @Override
+    public int indexOf(char c, int from) {
+        return ByteSource.indexOf(bytes, start + from, end, (byte) c) - start;
+    }
+
+    @Override
+    public CharSequence subSequence(int from, int to) {
+        if (from < 0 || to > length() || from > to) {
+            throw new IndexOutOfBoundsException("Invalid range " + from + ".." + to + " of " + length());
+        }
+        return new MappedSource(bytes, start + from, start + to);
+    }
+
+    @Override
+    public String toString() {
+        byte[] text = new byte[length()];
+        bytes.get(start, text);
+        return new String(text, StandardCharsets.ISO_8859_1);
+    }
+}
@@ -0,0 +1,172 @@
+package lexer;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.IntConsumer;
+
+// Lexes a large source in chunks on a ForkJoinPool and gives the same TokenBuffer as Lexer.tokenizeToBuffer().
+// Every chunk is lexed speculatively as if a token started at its first char. That guess is wrong when
+// a string, char literal or comment from the previous chunk runs over the boundary, so the chunks are
+// stitched in order: the lexer that reached the boundary keeps scanning until it produces a token that
+// starts exactly where one of the next chunk's tokens starts. From there both scans see the same text,
+// so the rest of that chunk is taken as is.
+public class ParallelLexer {
+    private static final int DEFAULT_CHUNK_SIZE = 1 << 20;
+
+    private ParallelLexer() {}
+
+    public static TokenBuffer tokenize(CharSequence source, SymbolPool symbols) {
+        return tokenize(source, symbols, ForkJoinPool.commonPool(), DEFAULT_CHUNK_SIZE);
+    }
+
+    public static TokenBuffer tokenize(CharSequence source, SymbolPool symbols, ForkJoinPool pool, int chunkSize) {
+        int[] bounds = split(source, chunkSize);
+        int count = bounds.length - 1;
+        if (count <= 1) {
+            return new Lexer(source, symbols).tokenizeToBuffer();
+        }
+
+        // one line table for all chunks, built only if some chunk reports an error
+        LineTable lines = new LineTable(source);
+        LexedChunk[] chunks = new LexedChunk[count];
+        run(pool, count, i -> chunks[i] = new LexedChunk(source, bounds[i], bounds[i + 1], lines));
+        return stitch(source, symbols, bounds, chunks);
+    }
+
+    // chunk bounds, each moved forward to just after a newline when one is close, since
+    // few tokens span lines and a boundary between tokens needs no repair
+    private static int[] split(CharSequence source, int chunkSize) {
+        int length = source.length();
+        int count = Math.max(1, (length + chunkSize - 1) / chunkSize);
+        int[] bounds = new int[count + 1];
+        int n = 1;
+        for (int i = 1; i < count; i++) {
+            int at = Math.max(i * chunkSize, bounds[n - 1] + 1);
+            int limit = Math.min(at + chunkSize / 4, length);
+            while (at < limit && source.charAt(at - 1) != '\n') {
+                at++;
+            }
+            if (at < length) {
+                bounds[n++] = at;
+            }
+        }
+        bounds[n++] = length;
+        return n == bounds.length ? bounds : Arrays.copyOf(bounds, n);
+    }
+
+    private static void run(ForkJoinPool pool, int count, IntConsumer task) {
+        ForkJoinTask<?>[] tasks = new ForkJoinTask<?>[count];
+        for (int i = 0; i < count; i++) {
+            int chunk = i;
+            tasks[i] = pool.submit(() -> task.accept(chunk));
+        }
+        for (ForkJoinTask<?> t : tasks) {
+            t.join();
+        }
+    }
+
+    private static TokenBuffer stitch(CharSequence source, SymbolPool symbols, int[] bounds, LexedChunk[] chunks) {
+        TokenBuffer result = new TokenBuffer(source, symbols);
+        LexedChunk live = chunks[0];
+        live.errorsFrom = -1;
+        live.appendTokens(result, 0, symbols);
+
+        for (int i = 1; i < chunks.length; i++) {
+            LexedChunk next = chunks[i];
+            Lexer lexer = live.lexer;
+
+            if (lexer.position == bounds[i]) {
+                // the previous scan stopped right on the boundary, the guess was correct
+                live.errorsTo = bounds[i];
+                next.errorsFrom = bounds[i];
+                next.appendTokens(result, 0, symbols);
+                live = next;
+                continue;
+            }
+
+            boolean synced = false;
+            int j = 0;
+            for (TokenType type = lexer.scanNext(bounds[i + 1]); type != TokenType.EOF; type = lexer.scanNext(bounds[i + 1])) {
+                int start = lexemeStart(type, lexer.tokenStart);
+                while (j < next.tokens.size() && lexemeStart(next.tokens.type(j), next.tokens.offset(j)) < start) {
+                    j++;
+                }
+                if (j < next.tokens.size() && lexemeStart(next.tokens.type(j), next.tokens.offset(j)) == start) {
+                    // errors inside this token lie after its start, the next chunk reported them too
+                    live.errorsTo = start;
+                    next.errorsFrom = start;
+                    next.appendTokens(result, j, symbols);
+                    live = next;
+                    synced = true;
+                    break;
+                }
+                int symbol = type == TokenType.IDENTIFIER ? live.globalSymbol(lexer.tokenSymbol, symbols) : -1;
+                result.add(type, lexer.tokenStart, lexer.tokenLength, symbol, lexer.tokenLiteral);
+            }
+            if (!synced) {
+                // the live scan went through the whole chunk, none of its speculation is used
+                next.errorsFrom = Integer.MAX_VALUE;
+            }
+        }
+
+        for (LexedChunk chunk : chunks) {
+            chunk.reportErrors();
+        }
+        return result;
+    }
+
+    // string and char literal spans leave out the opening quote
+    private static int lexemeStart(TokenType type, int offset) {
+        return type == TokenType.STRING_LITERALS || type == TokenType.CHAR_LITERALS ? offset - 1 : offset;
+    }
+}
+
+// one speculatively lexed chunk, with its own SymbolPool since pools are not thread-safe
+class LexedChunk {
+    final Lexer lexer;
+    final TokenBuffer tokens;
+    // errors with errorsFrom < position <= errorsTo belong to the accepted part of the scan
+    int errorsFrom = Integer.MAX_VALUE;
+    int errorsTo = Integer.MAX_VALUE;
+    private int[] remap = new int[0];
+
+    LexedChunk(CharSequence source, int start, int end, LineTable lines) {
+        SymbolPool local = new SymbolPool();
+        lexer = new Lexer(source, local, lines);
+        lexer.collectDiagnostics();
+        lexer.moveTo(start);
+        tokens = new TokenBuffer(source, local);
+        for (TokenType type = lexer.scanNext(end); type != TokenType.EOF; type = lexer.scanNext(end)) {
+            tokens.add(type, lexer.tokenStart, lexer.tokenLength, type == TokenType.IDENTIFIER ? lexer.tokenSymbol : -1, lexer.tokenLiteral);
+        }
+    }
+
+    // interning in token order hands out the same ids the sequential lexer would
+    int globalSymbol(int local, SymbolPool symbols) {
+        if (local >= remap.length) {
+            int oldLength = remap.length;
+            remap = Arrays.copyOf(remap, Math.max(local + 1, oldLength * 2));
+            Arrays.fill(remap, oldLength, remap.length, -1);
+        }
+        if (remap[local] < 0) {
+            remap[local] = symbols.intern(lexer.getSymbols().name(local));
+        }
+        return remap[local];
+    }
+
+    void appendTokens(TokenBuffer result, int from, SymbolPool symbols) {
+        for (int i = from; i < tokens.size(); i++) {
+            int symbol = tokens.symbol(i);
+            result.add(tokens.type(i), tokens.offset(i), tokens.length(i), symbol >= 0 ? globalSymbol(symbol, symbols) : -1, tokens.literal(i));
+        }
+    }
+
+    void reportErrors() {
+        for (Diagnostic diagnostic : lexer.getDiagnostics()) {
+            if (diagnostic.position > errorsFrom && diagnostic.position <= errorsTo) {
+                System.err.println(diagnostic.message);
+            }
+        }
+    }
+}
@@ -1,24 +1,188 @@
 package lexer;
 
+// a token's kind and text. Punctuation, keywords and booleans are shared instances, so a token has no
+// position of its own: where a token sits comes from TokenBuffer.offset() or TokenStream.offset().
 public class Token {
-    private TokenType type;
+    private final TokenType type;
+    // where the text comes from, for span-backed tokens; not a position in the input
+    private final CharSequence source;
+    private final int offset;
+    private final int length;
+    // SymbolPool id for identifiers, -1 for everything else
+    private final int symbol;
     private String value;
+    // number value as stored by the lexer, see Lexer.tokenLiteral; worked out from the text for other tokens
+    private long literal;
+    private boolean literalKnown;
+
+    // fixed spelling for punctuation, operators and keywords, indexed by ordinal
+    private static final String[] SPELLINGS = new String[TokenType.values().length];
+    // one shared instance per fixed token type
+    private static final Token[] FIXED = new Token[TokenType.values().length];
+    private static final Token TRUE = new Token(TokenType.BOOLEAN_LITERALS, "true");
+    private static final Token FALSE = new Token(TokenType.BOOLEAN_LITERALS, "false");
+
+    static {
+        spell(TokenType.PLUS, "+");
+        spell(TokenType.MINUS, "-");
+        spell(TokenType.MULTIPLY, "*");
+        spell(TokenType.DIVIDE, "/");
+        spell(TokenType.MOD, "%");
+        spell(TokenType.EQUALS, "==");
+        spell(TokenType.NOT_EQUALS, "!=");
+        spell(TokenType.GREATER_THAN, ">");
+        spell(TokenType.LESS_THAN, "<");
+        spell(TokenType.GREATER_THAN_EQUALS, ">=");
+        spell(TokenType.LESS_THAN_EQUALS, "<=");
+        spell(TokenType.AND, "&&");
+        spell(TokenType.OR, "||");
+        spell(TokenType.NOT, "!");
+        spell(TokenType.BITWISE_AND, "&");
+        spell(TokenType.BITWISE_OR, "|");
+        spell(TokenType.ASSIGN, "=");
+        spell(TokenType.PLUS_EQUALS, "+=");
+        spell(TokenType.MINUS_EQUALS, "-=");
+        spell(TokenType.MULT_EQUALS, "*=");
+        spell(TokenType.DIV_EQUALS, "/=");
+        spell(TokenType.INCREMENT, "++");
+        spell(TokenType.DECREMENT, "--");
+        spell(TokenType.LEFT_PAREN, "(");
+        spell(TokenType.RIGHT_PAREN, ")");
+        spell(TokenType.LEFT_BRACE, "{");
+        spell(TokenType.RIGHT_BRACE, "}");
+        spell(TokenType.LEFT_BRACKET, "[");
+        spell(TokenType.RIGHT_BRACKET, "]");
+        spell(TokenType.SEMICOLON, ";");
+        spell(TokenType.COMMA, ",");
+        spell(TokenType.DOT, ".");
+        //keywords
+        spell(TokenType.IF, "if");
+        spell(TokenType.ELSE, "else");
+        spell(TokenType.WHILE, "while");
+        spell(TokenType.FOR, "for");
+        spell(TokenType.RETURN, "return");
+        spell(TokenType.INT, "int");
+        spell(TokenType.FLOAT, "float");
+        spell(TokenType.BOOLEAN, "boolean");
+        spell(TokenType.CHAR, "char");
+        spell(TokenType.VOID, "void");
+        spell(TokenType.PRINT, "print");
+        spell(TokenType.PRINTLN, "println");
+        spell(TokenType.VAR, "var");
+        spell(TokenType.NEW, "new");
+        spell(TokenType.EOF, "");
+    }
+
+    private static void spell(TokenType type, String spelling) {
+        SPELLINGS[type.ordinal()] = spelling;
+        FIXED[type.ordinal()] = new Token(type, spelling);
+    }
 
     public Token(TokenType type, String value){
+        this.type = type;
+        this.source = value;
+        this.offset = 0;
+        this.length = value.length();
+        this.symbol = -1;
         this.value = value;
+    }
+
+    // token backed by a span of the source, the value is only built if asked for
+    public Token(TokenType type, CharSequence source, int offset, int length){
         this.type = type;
+        this.source = source;
+        this.offset = offset;
+        this.length = length;
+        this.symbol = -1;
+    }
+
+    // identifier token, the name is the pool's interned String so nothing is built per occurrence
+    public Token(CharSequence source, int offset, int length, int symbol, String name){
+        this.type = TokenType.IDENTIFIER;
+        this.source = source;
+        this.offset = offset;
+        this.length = length;
+        this.symbol = symbol;
+        this.value = name;
+    }
+
+    // shared instance for a token whose text never changes (punctuation, keywords, EOF)
+    public static Token fixed(TokenType type){
+        Token token = FIXED[type.ordinal()];
+        if (token == null) {
+            throw new IllegalArgumentException("No fixed spelling for token type " + type);
+        }
+        return token;
+    }
+
+    // builds the token for a scanned span, shared instances where the text is fixed
+    static Token of(TokenType type, CharSequence source, int offset, int length, int symbol, long literal, SymbolPool symbols){
+        switch (type) {
+            case IDENTIFIER:
+                return new Token(source, offset, length, symbol, symbols.name(symbol));
+            case NUMBER_LITERALS:
+            case FLOAT_LITERALS:
+            case DOUBLE_LITERALS:
+                Token number = new Token(type, source, offset, length);
+                number.literal = literal;
+                number.literalKnown = true;
+                return number;
+            case STRING_LITERALS:
+            case CHAR_LITERALS:
+            case UNKNOWN:
+                return new Token(type, source, offset, length);
+            case BOOLEAN_LITERALS:
+                return length == 4 ? TRUE : FALSE;
+            default:
+                return fixed(type);
+        }
+    }
+
+    public static String spelling(TokenType type){
+        return SPELLINGS[type.ordinal()];
     }
 
     public TokenType getType(){
         return type;
     }
 
+    public int getSymbol(){
+        return symbol;
+    }
+
+    // value of an int literal
+    public long getLong(){
+        return getLiteral();
+    }
+
+    // value of a float or double literal
+    public double getDouble(){
+        return Double.longBitsToDouble(getLiteral());
+    }
+
+    long getLiteral(){
+        if (!literalKnown) {
+            literal = Lexer.literal(type, source, offset, length);
+            literalKnown = true;
+        }
+        return literal;
+    }
+
     public String getValue(){
+        if (value == null) {
+            if (type == TokenType.STRING_LITERALS) {
+                value = Lexer.unescape(source, offset, offset + length, '"');
+            } else if (type == TokenType.CHAR_LITERALS) {
+                value = Lexer.unescape(source, offset, offset + length, '\'');
+            } else {
+                value = source.subSequence(offset, offset + length).toString();
+            }
+        }
         return value;
     }
 
     @Override
     public String toString(){
-        return "Token{" + "type=" + type + ", value='" + value + '\'' + '}';
+        return "Token{" + "type=" + type + ", value='" + getValue() + '\'' + '}';
     }
 }
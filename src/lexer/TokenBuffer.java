@@ -0,0 +1,144 @@
+package lexer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// packed token list: one column per field instead of one Token object per token,
+// about 13 bytes per token. Columns grow in fixed size chunks so growing never copies old tokens.
+// Token objects are only built when someone asks for token(i).
+public class TokenBuffer {
+    private static final int CHUNK_SHIFT = 12;
+    private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+    private static final TokenType[] TYPES = TokenType.values();
+
+    private final CharSequence source;
+    private final SymbolPool symbols;
+    // set when the buffer wraps tokens that were already built, token(i) hands those back
+    private final List<Token> materialized;
+
+    private byte[][] kinds = new byte[4][];
+    private int[][] offsets = new int[4][];
+    private int[][] lengths = new int[4][];
+    private int[][] symbolIds = new int[4][];
+    // number values, a chunk is only allocated once a nonzero one lands in it
+    private long[][] literals = new long[4][];
+    private int size;
+
+    public TokenBuffer(CharSequence source, SymbolPool symbols) {
+        this(source, symbols, null);
+    }
+
+    private TokenBuffer(CharSequence source, SymbolPool symbols, List<Token> materialized) {
+        this.source = source;
+        this.symbols = symbols;
+        this.materialized = materialized;
+    }
+
+    // adapter for code that still produces a List<Token>. Tokens carry no position, so a buffer made
+    // this way has no source and every offset is -1, errors found parsing it have no position either.
+    // Identifiers are interned into a pool of the buffer's own, ones built without an id get one here.
+    public static TokenBuffer of(List<Token> tokens) {
+        SymbolPool symbols = new SymbolPool();
+        List<Token> interned = new ArrayList<>(tokens);
+        TokenBuffer buffer = new TokenBuffer(null, symbols, interned);
+        for (int i = 0; i < interned.size(); i++) {
+            Token token = interned.get(i);
+            int symbol = -1;
+            if (token.getType() == TokenType.IDENTIFIER) {
+                String name = token.getValue();
+                symbol = symbols.intern(name);
+                if (symbol != token.getSymbol()) {
+                    token = new Token(name, 0, name.length(), symbol, name);
+                    interned.set(i, token);
+                }
+            }
+            buffer.add(token.getType(), -1, 0, symbol, token.getLiteral());
+        }
+        return buffer;
+    }
+
+    void add(TokenType type, int offset, int length, int symbol, long literal) {
+        int chunk = size >>> CHUNK_SHIFT;
+        int index = size & CHUNK_MASK;
+        if (index == 0) {
+            addChunk(chunk);
+        }
+        kinds[chunk][index] = (byte) type.ordinal();
+        offsets[chunk][index] = offset;
+        lengths[chunk][index] = length;
+        symbolIds[chunk][index] = symbol;
+        if (literal != 0) {
+            if (literals[chunk] == null) {
+                literals[chunk] = new long[CHUNK_SIZE];
+            }
+            literals[chunk][index] = literal;
+        }
+        size++;
+    }
+
+    private void addChunk(int chunk) {
+        if (chunk == kinds.length) {
+            kinds = Arrays.copyOf(kinds, chunk * 2);
+            offsets = Arrays.copyOf(offsets, chunk * 2);
+            lengths = Arrays.copyOf(lengths, chunk * 2);
+            symbolIds = Arrays.copyOf(symbolIds, chunk * 2);
+            literals = Arrays.copyOf(literals, chunk * 2);
+        }
+        kinds[chunk] = new byte[CHUNK_SIZE];
+        offsets[chunk] = new int[CHUNK_SIZE];
+        lengths[chunk] = new int[CHUNK_SIZE];
+        symbolIds[chunk] = new int[CHUNK_SIZE];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // null for a buffer made from a token list
+    public CharSequence getSource() {
+        return source;
+    }
+
+    public SymbolPool getSymbols() {
+        return symbols;
+    }
+
+    // EOF for any index past the last token, so lookahead never needs a bounds check
+    public TokenType type(int i) {
+        if (i >= size) {
+            return TokenType.EOF;
+        }
+        return TYPES[kinds[i >>> CHUNK_SHIFT][i & CHUNK_MASK]];
+    }
+
+    public int offset(int i) {
+        return offsets[i >>> CHUNK_SHIFT][i & CHUNK_MASK];
+    }
+
+    public int length(int i) {
+        return lengths[i >>> CHUNK_SHIFT][i & CHUNK_MASK];
+    }
+
+    // SymbolPool id of an identifier, -1 for other tokens
+    public int symbol(int i) {
+        return symbolIds[i >>> CHUNK_SHIFT][i & CHUNK_MASK];
+    }
+
+    // value of a number token as Lexer.tokenLiteral holds it, 0 for other tokens
+    public long literal(int i) {
+        long[] chunk = literals[i >>> CHUNK_SHIFT];
+        return chunk == null ? 0 : chunk[i & CHUNK_MASK];
+    }
+
+    public Token token(int i) {
+        if (i >= size) {
+            return Token.fixed(TokenType.EOF);
+        }
+        if (materialized != null) {
+            return materialized.get(i);
+        }
+        return Token.of(type(i), source, offset(i), length(i), symbol(i), literal(i), symbols);
+    }
+}
@@ -0,0 +1,33 @@
+package lexer;
+
+// result of re-lexing after an edit: tokens [start, oldEnd) of the old buffer
+// were replaced by tokens [start, newEnd) of the new one, everything else is unchanged
+public class TokenEdit {
+    private final TokenBuffer tokens;
+    private final int start;
+    private final int oldEnd;
+    private final int newEnd;
+
+    public TokenEdit(TokenBuffer tokens, int start, int oldEnd, int newEnd) {
+        this.tokens = tokens;
+        this.start = start;
+        this.oldEnd = oldEnd;
+        this.newEnd = newEnd;
+    }
+
+    public TokenBuffer getTokens() {
+        return tokens;
+    }
+
+    public int getStart() {
+        return start;
+    }
+
+    public int getOldEnd() {
+        return oldEnd;
+    }
+
+    public int getNewEnd() {
+        return newEnd;
+    }
+}
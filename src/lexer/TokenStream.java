@@ -0,0 +1,51 @@
+package lexer;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+// pulls tokens from a Lexer one at a time, nothing is kept once it has been handed out.
+// Shared tokens carry no position, so the span of the token last returned by next() is read from
+// offset() and length() instead of from the token.
+public class TokenStream implements Iterator<Token> {
+    private final Lexer lexer;
+    private Token next;
+    private int nextOffset;
+    private int nextLength;
+    private int offset = -1;
+    private int length;
+
+    public TokenStream(Lexer lexer) {
+        this.lexer = lexer;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (next == null) {
+            next = lexer.nextToken();
+            nextOffset = lexer.tokenStart;
+            nextLength = lexer.tokenLength;
+        }
+        return next.getType() != TokenType.EOF;
+    }
+
+    @Override
+    public Token next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException("No tokens left in stream");
+        }
+        Token token = next;
+        next = null;
+        offset = nextOffset;
+        length = nextLength;
+        return token;
+    }
+
+    // source offset of the token last returned by next(), -1 before the first one
+    public int offset() {
+        return offset;
+    }
+
+    public int length() {
+        return length;
+    }
+}
@@ -0,0 +1,157 @@
+package lexer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// UTF-8 source read straight from its bytes, indexes are byte offsets so token spans point into the bytes
+// ASCII bytes come back as they are; a byte of a multi-byte sequence comes back as the char the whole
+// sequence decodes to, so a non-ASCII letter reads as a run of letters and the lexer needs no decode step
+// code points outside the BMP read as their high surrogate, malformed bytes as U+FFFD
+public class Utf8Source implements ByteSource {
+    private final ByteBuffer bytes;
+    private final int start;
+    private final int end;
+
+    public Utf8Source(byte[] bytes) {
+        this(ByteBuffer.wrap(bytes));
+    }
+
+    public Utf8Source(ByteBuffer bytes) {
+        this(bytes, hasBom(bytes) ? 3 : 0, bytes.limit());
+    }
+
+    private Utf8Source(ByteBuffer bytes, int start, int end) {
+        this.bytes = bytes;
+        this.start = start;
+        this.end = end;
+    }
+
+    public static Utf8Source map(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Source file too large to map: " + path + " (" + size + " bytes)");
+            }
+            return new Utf8Source(channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+        }
+    }
+
+    private static boolean hasBom(ByteBuffer bytes) {
+        return bytes.limit() >= 3 && bytes.get(0) == (byte) 0xEF && bytes.get(1) == (byte) 0xBB && bytes.get(2) == (byte) 0xBF;
+    }
+
+    @Override
+    public int length() {
+        return end - start;
+    }
+
+    @Override
+    public char charAt(int index) {
+        byte b = bytes.get(start + index);
+        if (b >= 0) {
+            return (char) b;
+        }
+        return decode(start + index);
+    }
+
+    // true for the second, third or fourth byte of a sequence
+    boolean isContinuation(int index) {
+        return (bytes.get(start + index) & 0xC0) == 0x80;
+    }
+
+    // index of the first byte of the char at index
+    int charStart(int index) {
+        return leadOf(start + index) - start;
+    }
+
+    // index just past the char at index, the end of its whole sequence for a multi-byte char
+    int charEnd(int index) {
+        int at = start + index;
+        int lead = leadOf(at);
+        int width = width(bytes.get(lead));
+        if (width == 0 || lead + width > end || lead + width <= at) {
+            return index + 1;
+        }
+        return lead + width - start;
+    }
+
+    private char decode(int at) {
+        int lead = leadOf(at);
+        int b = bytes.get(lead) & 0xFF;
+        int width = width((byte) b);
+        if (width == 0 || lead + width > end || lead + width <= at) {
+            return '\uFFFD';
+        }
+        int codePoint = b & (0x7F >> width);
+        for (int i = 1; i < width; i++) {
+            byte next = bytes.get(lead + i);
+            if ((next & 0xC0) != 0x80) {
+                return '\uFFFD';
+            }
+            codePoint = codePoint << 6 | next & 0x3F;
+        }
+        return codePoint < Character.MIN_SUPPLEMENTARY_CODE_POINT ? (char) codePoint : Character.highSurrogate(codePoint);
+    }
+
+    // a new source with bytes [offset, offset + removedLength) replaced by inserted; both ends of the
+    // removed range must fall between chars, not inside a multi-byte sequence
+    Utf8Source splice(int offset, int removedLength, byte[] inserted) {
+        int removedEnd = offset + removedLength;
+        if ((offset < length() && isContinuation(offset)) || (removedEnd < length() && isContinuation(removedEnd))) {
+            throw new IllegalArgumentException("Edit " + offset + "+" + removedLength + " splits a UTF-8 sequence");
+        }
+        byte[] text = new byte[length() - removedLength + inserted.length];
+        bytes.get(start, text, 0, offset);
+        System.arraycopy(inserted, 0, text, offset, inserted.length);
+        bytes.get(start + removedEnd, text, offset + inserted.length, length() - removedEnd);
+        return new Utf8Source(ByteBuffer.wrap(text), 0, text.length);
+    }
+
+    // steps back over continuation bytes to the byte that starts the sequence, at most three
+    private int leadOf(int at) {
+        int lead = at;
+        while (lead > start && lead > at - 3 && (bytes.get(lead) & 0xC0) == 0x80) {
+            lead--;
+        }
+        return lead;
+    }
+
+    // sequence length announced by a lead byte, 0 for a byte that cannot start one
+    private static int width(byte lead) {
+        if (lead >= 0) {
+            return 1;
+        } else if ((lead & 0xE0) == 0xC0) {
+            return 2;
+        } else if ((lead & 0xF0) == 0xE0) {
+            return 3;
+        } else if ((lead & 0xF8) == 0xF0) {
+            return 4;
+        }
+        return 0;
+    }
+
+    @Override
+    public int indexOf(char c, int from) {
+        return ByteSource.indexOf(bytes, start + from, end, (byte) c) - start;
+    }
+
+    @Override
+    public CharSequence subSequence(int from, int to) {
+        if (from < 0 || to > length() || from > to) {
+            throw new IndexOutOfBoundsException("Invalid range " + from + ".." + to + " of " + length());
+        }
+        return new Utf8Source(bytes, start + from, start + to);
+    }
+
+    // the one place bytes are decoded in bulk, only for spans whose text is asked for
+    @Override
+    public String toString() {
+        byte[] text = new byte[length()];
+        bytes.get(start, text);
+        return new String(text, StandardCharsets.UTF_8);
+    }
+}
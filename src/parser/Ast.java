@@ -0,0 +1,370 @@
+package parser;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import lexer.Token;
+import lexer.TokenType;
+import parser.exprs.*;
+import parser.stmts.*;
+
+// Flat syntax tree: nodes are ints and every field is a column, instead of one object per node
+// holding Tokens and ArrayLists. About 22 bytes per node.
+// Nodes are stored in pre-order, a node's children follow it and are linked through nextSibling,
+// so a walk over the whole program is a scan from 0 to size(). Node 0 is the program and its
+// children are the top-level statements.
+// Names and string literals are kept once each in a string table the payload points into.
+public class Ast {
+    public static final int PROGRAM = 0;
+    // expressions
+    public static final int LITERAL = 1;
+    public static final int VARIABLE = 2;
+    public static final int BINARY = 3;
+    public static final int UNARY = 4;
+    public static final int POSTFIX = 5;
+    public static final int ASSIGNMENT = 6;
+    public static final int GROUPING = 7;
+    public static final int ARRAY_LITERAL = 8;
+    public static final int NEW_ARRAY = 9;
+    // a dimension left empty in new T[n][]
+    public static final int EMPTY_DIMENSION = 10;
+    // statements
+    public static final int VAR = 11;
+    public static final int EXPR_STMT = 12;
+    public static final int BLOCK = 13;
+    public static final int IF = 14;
+    public static final int WHILE = 15;
+    public static final int PRINT = 16;
+    public static final int ERROR = 17;
+
+    private static final TokenType[] TYPES = TokenType.values();
+
+    private byte[] kinds = new byte[64];
+    // operator, literal kind, declared or element type, as a TokenType ordinal; 0 where there is none
+    private byte[] ops = new byte[64];
+    private int[] firstChild = new int[64];
+    private int[] nextSibling = new int[64];
+    // only needed while building, to link a new child after its older siblings
+    private int[] lastChild = new int[64];
+    // LITERAL: the value (double bits for float and double, a string index for strings)
+    // VARIABLE: symbol << 32 | name index     ASSIGNMENT: name index
+    // VAR: isArray << 62 | dimensions << 32 | name index     ERROR: message index << 32 | offset
+    private long[] payloads = new long[64];
+    private int size;
+
+    private final List<String> strings = new ArrayList<>();
+    private final Map<String, Integer> stringIds = new HashMap<>();
+    // VAR and NEW_ARRAY nodes whose type is written as a string literal -> index of that text
+    private final Map<Integer, Integer> typeNames = new HashMap<>();
+
+    // statements and expressions still to be added by add(), with the node each one goes under
+    private Object[] pending = new Object[16];
+    private int[] pendingParents = new int[16];
+    private int pendingSize;
+
+    public Ast() {
+        node(PROGRAM, null, 0, -1);
+    }
+
+    public static Ast of(List<Stmt> statements) {
+        Ast ast = new Ast();
+        for (Stmt stmt : statements) {
+            ast.add(stmt);
+        }
+        return ast;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int kind(int node) {
+        return kinds[node];
+    }
+
+    public TokenType op(int node) {
+        return TYPES[ops[node]];
+    }
+
+    // -1 when there is none
+    public int firstChild(int node) {
+        return firstChild[node];
+    }
+
+    public int nextSibling(int node) {
+        return nextSibling[node];
+    }
+
+    public int childCount(int node) {
+        int count = 0;
+        for (int child = firstChild[node]; child >= 0; child = nextSibling[child]) {
+            count++;
+        }
+        return count;
+    }
+
+    public long getLong(int node) {
+        return payloads[node];
+    }
+
+    public double getDouble(int node) {
+        return Double.longBitsToDouble(payloads[node]);
+    }
+
+    public boolean getBoolean(int node) {
+        return payloads[node] != 0;
+    }
+
+    public char getChar(int node) {
+        return (char) payloads[node];
+    }
+
+    public String getString(int node) {
+        return strings.get((int) payloads[node]);
+    }
+
+    // variable, assignment target or declared name
+    public String name(int node) {
+        return strings.get((int) payloads[node]);
+    }
+
+    // VARIABLE, ASSIGNMENT and VAR: index of the name in the string table, equal names have equal ids
+    public int nameId(int node) {
+        return (int) payloads[node];
+    }
+
+    public int symbol(int node) {
+        return (int) (payloads[node] >> 32);
+    }
+
+    public int dimensions(int node) {
+        return (int) (payloads[node] >>> 32) & 0x3FFFFFFF;
+    }
+
+    public boolean isArray(int node) {
+        return (payloads[node] >>> 62 & 1) != 0;
+    }
+
+    // declared or element type of a VAR or NEW_ARRAY node as written, e.g. "int"
+    public String typeName(int node) {
+        Integer text = typeNames.get(node);
+        if (text != null) {
+            return strings.get(text);
+        }
+        return op(node).name().toLowerCase(Locale.ROOT);
+    }
+
+    public int errorOffset(int node) {
+        return (int) payloads[node];
+    }
+
+    public String errorMessage(int node) {
+        return strings.get((int) (payloads[node] >>> 32));
+    }
+
+    // appends a top-level statement; the tree is walked with an explicit stack, so depth costs no thread stack.
+    // Children are pushed last to first, so they come off the stack, and get their nodes, in order.
+    void add(Stmt stmt) {
+        // left over when an earlier statement could not be flattened
+        Arrays.fill(pending, 0, pendingSize, null);
+        pendingSize = 0;
+        push(stmt, PROGRAM);
+        while (pendingSize > 0) {
+            pendingSize--;
+            Object next = pending[pendingSize];
+            pending[pendingSize] = null;
+            int parent = pendingParents[pendingSize];
+            if (next instanceof Stmt s) {
+                addStmt(s, parent);
+            } else {
+                addExpr((Expr) next, parent);
+            }
+        }
+    }
+
+    private void push(Object child, int parent) {
+        if (pendingSize == pending.length) {
+            pending = Arrays.copyOf(pending, pendingSize * 2);
+            pendingParents = Arrays.copyOf(pendingParents, pendingSize * 2);
+        }
+        pending[pendingSize] = child;
+        pendingParents[pendingSize] = parent;
+        pendingSize++;
+    }
+
+    private void pushAll(List<?> children, int parent) {
+        for (int i = children.size() - 1; i >= 0; i--) {
+            push(children.get(i), parent);
+        }
+    }
+
+    private void addStmt(Stmt stmt, int parent) {
+        switch (stmt.kind()) {
+            case Stmt.VAR: {
+                VarStmt var = (VarStmt) stmt;
+                long payload = (var.isArray() ? 1L << 62 : 0) | (long) var.getDimensions() << 32 | string(var.getName().getValue());
+                int node = node(VAR, var.getType().getType(), payload, parent);
+                typeName(node, var.getType());
+                if (var.getInitialzer() != null) {
+                    push(var.getInitialzer(), node);
+                }
+                break;
+            }
+            case Stmt.EXPR:
+                push(((ExprStmt) stmt).getExpr(), node(EXPR_STMT, null, 0, parent));
+                break;
+            case Stmt.BLOCK:
+                pushAll(((BlockStmt) stmt).getStatements(), node(BLOCK, null, 0, parent));
+                break;
+            case Stmt.IF: {
+                IfStmt ifStmt = (IfStmt) stmt;
+                int node = node(IF, null, 0, parent);
+                if (ifStmt.getElseBranch() != null) {
+                    push(ifStmt.getElseBranch(), node);
+                }
+                push(ifStmt.getThenBranch(), node);
+                push(ifStmt.getCondition(), node);
+                break;
+            }
+            case Stmt.WHILE: {
+                WhileStmt whileStmt = (WhileStmt) stmt;
+                int node = node(WHILE, null, 0, parent);
+                push(whileStmt.getBody(), node);
+                push(whileStmt.getCondition(), node);
+                break;
+            }
+            case Stmt.PRINT:
+                push(((PrintStmt) stmt).getExpr(), node(PRINT, null, 0, parent));
+                break;
+            case Stmt.ERROR: {
+                SyntaxError error = ((ErrorStmt) stmt).getError();
+                node(ERROR, null, (long) string(error.getMessage()) << 32 | error.getOffset() & 0xFFFFFFFFL, parent);
+                break;
+            }
+            default:
+                throw new IllegalArgumentException("No flat node for " + stmt.getClass().getSimpleName());
+        }
+    }
+
+    private void addExpr(Expr expr, int parent) {
+        if (expr == null) {
+            node(EMPTY_DIMENSION, null, 0, parent);
+            return;
+        }
+        switch (expr.kind()) {
+            case Expr.LITERAL: {
+                LiteralExpr lit = (LiteralExpr) expr;
+                long payload;
+                switch (lit.getTokenType()) {
+                    case NUMBER_LITERALS:
+                        payload = lit.getLong();
+                        break;
+                    case FLOAT_LITERALS:
+                    case DOUBLE_LITERALS:
+                        payload = Double.doubleToRawLongBits(lit.getDouble());
+                        break;
+                    case CHAR_LITERALS:
+                        payload = lit.getChar();
+                        break;
+                    case BOOLEAN_LITERALS:
+                        payload = lit.getBoolean() ? 1 : 0;
+                        break;
+                    default:
+                        payload = string(lit.getString());
+                }
+                node(LITERAL, lit.getTokenType(), payload, parent);
+                break;
+            }
+            case Expr.VARIABLE: {
+                VariableExpr var = (VariableExpr) expr;
+                node(VARIABLE, null, (long) var.getSymbol() << 32 | string(var.getVar()), parent);
+                break;
+            }
+            case Expr.BINARY: {
+                BinaryExpr bin = (BinaryExpr) expr;
+                int node = node(BINARY, bin.getOperator().getType(), 0, parent);
+                push(bin.getRight(), node);
+                push(bin.getLeft(), node);
+                break;
+            }
+            case Expr.UNARY: {
+                UnaryExpr unary = (UnaryExpr) expr;
+                push(unary.getRight(), node(UNARY, unary.getOperator().getType(), 0, parent));
+                break;
+            }
+            case Expr.POSTFIX: {
+                PostfixExpr post = (PostfixExpr) expr;
+                push(post.getOperand(), node(POSTFIX, post.getOperator().getType(), 0, parent));
+                break;
+            }
+            case Expr.ASSIGNMENT: {
+                AssignmentExpr assign = (AssignmentExpr) expr;
+                push(assign.getRight(), node(ASSIGNMENT, assign.getAssign().getType(), string(assign.getName().getValue()), parent));
+                break;
+            }
+            case Expr.GROUPING:
+                push(((GroupingExpr) expr).getExpr(), node(GROUPING, null, 0, parent));
+                break;
+            case Expr.ARRAY_LITERAL:
+                pushAll(((ArrayLiteralExpr) expr).getElements(), node(ARRAY_LITERAL, null, 0, parent));
+                break;
+            case Expr.NEW_ARRAY: {
+                NewArrayExpr array = (NewArrayExpr) expr;
+                int node = node(NEW_ARRAY, array.getType().getType(), 0, parent);
+                typeName(node, array.getType());
+                pushAll(array.getDimensions(), node);
+                break;
+            }
+            default:
+                throw new IllegalArgumentException("No flat node for " + expr.getClass().getSimpleName());
+        }
+    }
+
+    private int node(int kind, TokenType op, long payload, int parent) {
+        if (size == kinds.length) {
+            int capacity = size * 2;
+            kinds = Arrays.copyOf(kinds, capacity);
+            ops = Arrays.copyOf(ops, capacity);
+            firstChild = Arrays.copyOf(firstChild, capacity);
+            nextSibling = Arrays.copyOf(nextSibling, capacity);
+            lastChild = Arrays.copyOf(lastChild, capacity);
+            payloads = Arrays.copyOf(payloads, capacity);
+        }
+        int node = size++;
+        kinds[node] = (byte) kind;
+        ops[node] = (byte) (op != null ? op.ordinal() : 0);
+        firstChild[node] = -1;
+        nextSibling[node] = -1;
+        lastChild[node] = -1;
+        payloads[node] = payload;
+        if (parent >= 0) {
+            if (lastChild[parent] < 0) {
+                firstChild[parent] = node;
+            } else {
+                nextSibling[lastChild[parent]] = node;
+            }
+            lastChild[parent] = node;
+        }
+        return node;
+    }
+
+    // only a type spelled as a string literal needs its text kept, a keyword's text follows from op
+    private void typeName(int node, Token type) {
+        if (type.getType() == TokenType.STRING_LITERALS) {
+            typeNames.put(node, string(type.getValue()));
+        }
+    }
+
+    private int string(String value) {
+        Integer id = stringIds.get(value);
+        if (id == null) {
+            id = strings.size();
+            strings.add(value);
+            stringIds.put(value, id);
+        }
+        return id;
+    }
+}
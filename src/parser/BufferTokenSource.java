@@ -0,0 +1,39 @@
+package parser;
+
+import lexer.Token;
+import lexer.TokenBuffer;
+import lexer.TokenType;
+
+// random access over a fully lexed TokenBuffer, Token objects are only built for tokens the parser takes
+// a source can be cut off at end, so a parser on part of the buffer sees EOF where its part stops
+class BufferTokenSource implements TokenSource {
+    private final TokenBuffer tokens;
+    private final int end;
+
+    BufferTokenSource(TokenBuffer tokens) {
+        this(tokens, tokens.size());
+    }
+
+    BufferTokenSource(TokenBuffer tokens, int end) {
+        this.tokens = tokens;
+        this.end = end;
+    }
+
+    @Override
+    public TokenType type(int i) {
+        return i < end ? tokens.type(i) : TokenType.EOF;
+    }
+
+    @Override
+    public Token token(int i) {
+        return i < end ? tokens.token(i) : Token.fixed(TokenType.EOF);
+    }
+
+    @Override
+    public int offset(int i) {
+        if (i < end) {
+            return tokens.offset(i);
+        }
+        return end == 0 ? 0 : tokens.offset(end - 1) + tokens.length(end - 1);
+    }
+}
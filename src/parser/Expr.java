@@ -3,5 +3,26 @@ package parser;
 //for expressions
 
 public abstract class Expr extends ASTNode {
-    
-}
\ No newline at end of file
+    // what kind() returns, one per node class: passes dispatch with a switch on it,
+    // which costs the same for every kind, instead of a chain of instanceof tests
+    public static final int LITERAL = 0;
+    public static final int VARIABLE = 1;
+    public static final int BINARY = 2;
+    public static final int UNARY = 3;
+    public static final int POSTFIX = 4;
+    public static final int ASSIGNMENT = 5;
+    public static final int GROUPING = 6;
+    public static final int ARRAY_LITERAL = 7;
+    public static final int NEW_ARRAY = 8;
+    public static final int DEFAULT = 9;
+
+    private final int kind;
+
+    protected Expr(int kind) {
+        this.kind = kind;
+    }
+
+    public final int kind() {
+        return kind;
+    }
+}
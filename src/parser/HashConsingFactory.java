@@ -0,0 +1,217 @@
+package parser;
+
+import lexer.Token;
+import lexer.TokenType;
+import parser.exprs.*;
+
+// Hands out one shared node per distinct expression, so a subtree written a thousand times is stored once
+// and a later pass can remember a result per node. Children are already shared when their parent is built,
+// so two nodes are the same when their kind, operator or value and the identity of their children are.
+// A variable node is only shared between references that see the same declarations: every change to the
+// bindings starts a new epoch and variables from different epochs are different nodes. Anything built on
+// top of a variable inherits that, while literals are shared across the whole program.
+// Nodes live in an open addressing table with their hash kept next to them, so probing compares ints
+// and growing never hashes a node again.
+class HashConsingFactory extends NodeFactory {
+    private static final int LITERAL = 1;
+    private static final int VARIABLE = 2;
+    private static final int BINARY = 3;
+    private static final int UNARY = 4;
+    private static final int POSTFIX = 5;
+    private static final int GROUPING = 6;
+
+    private Expr[] table = new Expr[1024];
+    private int[] hashes = new int[1024];
+    // binding epoch of a variable node, unused for the rest
+    private int[] epochs = new int[1024];
+    private int count;
+    private int epoch;
+
+    @Override
+    LiteralExpr literal(long value) {
+        int hash = hash(LITERAL, TokenType.NUMBER_LITERALS.ordinal(), Long.hashCode(value), 0);
+        int slot = slot(hash);
+        for (; table[slot] != null; slot = next(slot)) {
+            if (hashes[slot] == hash && table[slot] instanceof LiteralExpr lit
+                    && lit.getTokenType() == TokenType.NUMBER_LITERALS && lit.getLong() == value) {
+                return lit;
+            }
+        }
+        return insert(slot, hash, new LiteralExpr(value));
+    }
+
+    @Override
+    LiteralExpr literal(double value, TokenType type) {
+        long bits = Double.doubleToRawLongBits(value);
+        int hash = hash(LITERAL, type.ordinal(), Long.hashCode(bits), 0);
+        int slot = slot(hash);
+        for (; table[slot] != null; slot = next(slot)) {
+            if (hashes[slot] == hash && table[slot] instanceof LiteralExpr lit
+                    && lit.getTokenType() == type && Double.doubleToRawLongBits(lit.getDouble()) == bits) {
+                return lit;
+            }
+        }
+        return insert(slot, hash, new LiteralExpr(value, type));
+    }
+
+    @Override
+    LiteralExpr literal(char value) {
+        int hash = hash(LITERAL, TokenType.CHAR_LITERALS.ordinal(), value, 0);
+        int slot = slot(hash);
+        for (; table[slot] != null; slot = next(slot)) {
+            if (hashes[slot] == hash && table[slot] instanceof LiteralExpr lit
+                    && lit.getTokenType() == TokenType.CHAR_LITERALS && lit.getChar() == value) {
+                return lit;
+            }
+        }
+        return insert(slot, hash, new LiteralExpr(value));
+    }
+
+    @Override
+    LiteralExpr literal(boolean value) {
+        int hash = hash(LITERAL, TokenType.BOOLEAN_LITERALS.ordinal(), value ? 1 : 0, 0);
+        int slot = slot(hash);
+        for (; table[slot] != null; slot = next(slot)) {
+            if (hashes[slot] == hash && table[slot] instanceof LiteralExpr lit
+                    && lit.getTokenType() == TokenType.BOOLEAN_LITERALS && lit.getBoolean() == value) {
+                return lit;
+            }
+        }
+        return insert(slot, hash, new LiteralExpr(value));
+    }
+
+    @Override
+    LiteralExpr literal(String value) {
+        int hash = hash(LITERAL, TokenType.STRING_LITERALS.ordinal(), value.hashCode(), 0);
+        int slot = slot(hash);
+        for (; table[slot] != null; slot = next(slot)) {
+            if (hashes[slot] == hash && table[slot] instanceof LiteralExpr lit
+                    && lit.getTokenType() == TokenType.STRING_LITERALS && lit.getString().equals(value)) {
+                return lit;
+            }
+        }
+        return insert(slot, hash, new LiteralExpr(value));
+    }
+
+    @Override
+    Expr variable(String name, int symbol) {
+        int hash = hash(VARIABLE, epoch, name.hashCode(), 0);
+        int slot = slot(hash);
+        for (; table[slot] != null; slot = next(slot)) {
+            if (hashes[slot] == hash && epochs[slot] == epoch && table[slot] instanceof VariableExpr var
+                    && var.getVar().equals(name)) {
+                return var;
+            }
+        }
+        epochs[slot] = epoch;
+        return insert(slot, hash, new VariableExpr(name, symbol));
+    }
+
+    @Override
+    Expr binary(Expr left, Token operator, Expr right) {
+        TokenType type = operator.getType();
+        int hash = hash(BINARY, type.ordinal(), System.identityHashCode(left), System.identityHashCode(right));
+        int slot = slot(hash);
+        for (; table[slot] != null; slot = next(slot)) {
+            if (hashes[slot] == hash && table[slot] instanceof BinaryExpr bin
+                    && bin.getLeft() == left && bin.getRight() == right && bin.getOperator().getType() == type) {
+                return bin;
+            }
+        }
+        return insert(slot, hash, new BinaryExpr(left, operator, right));
+    }
+
+    @Override
+    Expr unary(Token operator, Expr right) {
+        TokenType type = operator.getType();
+        int hash = hash(UNARY, type.ordinal(), System.identityHashCode(right), 0);
+        int slot = slot(hash);
+        for (; table[slot] != null; slot = next(slot)) {
+            if (hashes[slot] == hash && table[slot] instanceof UnaryExpr unary
+                    && unary.getRight() == right && unary.getOperator().getType() == type) {
+                return unary;
+            }
+        }
+        return insert(slot, hash, new UnaryExpr(operator, right));
+    }
+
+    @Override
+    Expr postfix(Expr left, Token operator) {
+        TokenType type = operator.getType();
+        int hash = hash(POSTFIX, type.ordinal(), System.identityHashCode(left), 0);
+        int slot = slot(hash);
+        for (; table[slot] != null; slot = next(slot)) {
+            if (hashes[slot] == hash && table[slot] instanceof PostfixExpr post
+                    && post.getOperand() == left && post.getOperator().getType() == type) {
+                return post;
+            }
+        }
+        return insert(slot, hash, new PostfixExpr(left, operator));
+    }
+
+    @Override
+    Expr grouping(Expr expr) {
+        int hash = hash(GROUPING, 0, System.identityHashCode(expr), 0);
+        int slot = slot(hash);
+        for (; table[slot] != null; slot = next(slot)) {
+            if (hashes[slot] == hash && table[slot] instanceof GroupingExpr group && group.getExpr() == expr) {
+                return group;
+            }
+        }
+        return insert(slot, hash, new GroupingExpr(expr));
+    }
+
+    @Override
+    void bindingsChanged() {
+        epoch++;
+    }
+
+    // number of distinct nodes handed out
+    int size() {
+        return count;
+    }
+
+    private static int hash(int kind, int op, int a, int b) {
+        int h = kind * 31 + op;
+        h = h * 0x9E3779B1 + a;
+        h = h * 0x9E3779B1 + b;
+        return h ^ (h >>> 16);
+    }
+
+    private int slot(int hash) {
+        return hash & (table.length - 1);
+    }
+
+    private int next(int slot) {
+        return (slot + 1) & (table.length - 1);
+    }
+
+    private <T extends Expr> T insert(int slot, int hash, T node) {
+        table[slot] = node;
+        hashes[slot] = hash;
+        if (++count * 2 > table.length) {
+            grow();
+        }
+        return node;
+    }
+
+    private void grow() {
+        Expr[] oldTable = table;
+        int[] oldHashes = hashes;
+        int[] oldEpochs = epochs;
+        table = new Expr[oldTable.length * 2];
+        hashes = new int[table.length];
+        epochs = new int[table.length];
+        for (int i = 0; i < oldTable.length; i++) {
+            if (oldTable[i] != null) {
+                int slot = slot(oldHashes[i]);
+                while (table[slot] != null) {
+                    slot = next(slot);
+                }
+                table[slot] = oldTable[i];
+                hashes[slot] = oldHashes[i];
+                epochs[slot] = oldEpochs[i];
+            }
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package parser;
+
+import lexer.Token;
+import lexer.TokenType;
+import parser.exprs.*;
+
+// builds the expression nodes the Parser reads, a new node every time
+// HashConsingFactory hands out shared nodes instead
+class NodeFactory {
+    LiteralExpr literal(long value) {
+        return new LiteralExpr(value);
+    }
+
+    LiteralExpr literal(double value, TokenType type) {
+        return new LiteralExpr(value, type);
+    }
+
+    LiteralExpr literal(char value) {
+        return new LiteralExpr(value);
+    }
+
+    LiteralExpr literal(boolean value) {
+        return new LiteralExpr(value);
+    }
+
+    LiteralExpr literal(String value) {
+        return new LiteralExpr(value);
+    }
+
+    Expr variable(String name, int symbol) {
+        return new VariableExpr(name, symbol);
+    }
+
+    Expr binary(Expr left, Token operator, Expr right) {
+        return new BinaryExpr(left, operator, right);
+    }
+
+    Expr unary(Token operator, Expr right) {
+        return new UnaryExpr(operator, right);
+    }
+
+    Expr postfix(Expr left, Token operator) {
+        return new PostfixExpr(left, operator);
+    }
+
+    Expr grouping(Expr expr) {
+        return new GroupingExpr(expr);
+    }
+
+    // called when a name may start to mean something else: a declaration, a block opening or closing
+    void bindingsChanged() {
+    }
+}
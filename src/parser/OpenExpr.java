@@ -0,0 +1,34 @@
+package parser;
+
+import java.util.List;
+import lexer.Token;
+
+// an operand the parser has started but that waits for a nested expression:
+// the right side of a binary operator or assignment, the operand of a prefix operator,
+// the inside of '(' ... ')' or a size in new T[...]
+class OpenExpr {
+    static final int BINARY = 0;
+    static final int ASSIGNMENT = 1;
+    static final int UNARY = 2;
+    static final int GROUPING = 3;
+    static final int NEW_ARRAY = 4;
+
+    final int kind;
+    // binding power of the expression this operand belongs to, restored once it is finished
+    final int outer;
+    // binding power the nested expression is read with
+    final int inner;
+    final Expr left;
+    // the operator, or the element type of a NEW_ARRAY
+    final Token operator;
+    Token name;
+    List<Expr> dimensions;
+
+    OpenExpr(int kind, int outer, int inner, Expr left, Token operator) {
+        this.kind = kind;
+        this.outer = outer;
+        this.inner = inner;
+        this.left = left;
+        this.operator = operator;
+    }
+}
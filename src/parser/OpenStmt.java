@@ -0,0 +1,44 @@
+package parser;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// a statement the parser has started but whose nested statements are still being read
+class OpenStmt {
+    static final int PROGRAM = 0;
+    static final int BLOCK = 1;
+    static final int IF = 2;
+    static final int WHILE = 3;
+
+    final int kind;
+    // PROGRAM and BLOCK: statements read so far, and the first token of the one being read
+    List<Stmt> statements;
+    int start;
+    // PROGRAM: when set, top-level statements are flattened into it as they finish instead of being kept
+    Ast ast;
+    // IF and WHILE
+    Expr condition;
+    Stmt body;
+    Stmt elseBranch;
+    int children;
+
+    OpenStmt(int kind) {
+        this.kind = kind;
+        if (kind == PROGRAM || kind == BLOCK) {
+            statements = new ArrayList<>();
+        }
+    }
+
+    void add(Stmt child) {
+        if (ast != null) {
+            ast.add(child);
+        } else if (statements != null) {
+            statements.add(child);
+        } else if (children == 0) {
+            body = child;
+        } else {
+            elseBranch = child;
+        }
+        children++;
+    }
+}
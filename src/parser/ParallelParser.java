@@ -0,0 +1,111 @@
+package parser;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import lexer.TokenBuffer;
+import lexer.TokenType;
+
+// Parses a large TokenBuffer on a ForkJoinPool and gives the same statements (or the same first error) as Parser.parse().
+// A quick pass over the token kinds finds where top-level statements end, a ';' or '}' at brace depth zero that
+// is not followed by 'else' or ';'. The buffer is cut into batches at those points and each batch is parsed by its
+// own Parser that sees EOF at the cut. A batch that fails to parse, which is also what a wrong cut looks like,
+// is parsed again sequentially from its start to the end of the input, so errors come out as they would from Parser.
+public class ParallelParser {
+    private static final int DEFAULT_BATCH_SIZE = 8192;
+
+    private final TokenBuffer tokens;
+    private List<SyntaxError> errors;
+
+    public ParallelParser(TokenBuffer tokens){
+        this.tokens = tokens;
+    }
+
+    // same as Parser.recoverErrors()
+    public void recoverErrors(){
+        errors = new ArrayList<>();
+    }
+
+    public List<SyntaxError> getErrors(){
+        return errors != null ? errors : List.of();
+    }
+
+    public List<Stmt> parse(){
+        return parse(ForkJoinPool.commonPool(), DEFAULT_BATCH_SIZE);
+    }
+
+    // batchSize is the least number of tokens per batch, a batch always ends on a statement boundary
+    public List<Stmt> parse(ForkJoinPool pool, int batchSize){
+        int[] cuts = cut(batchSize);
+        int count = cuts.length - 1;
+
+        List<ForkJoinTask<List<Stmt>>> batches = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int from = cuts[i];
+            int to = cuts[i + 1];
+            batches.add(pool.submit(() -> parseBatch(from, to)));
+        }
+
+        List<Stmt> statements = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            List<Stmt> batch = batches.get(i).join();
+            if (batch == null) {
+                for (int j = i + 1; j < count; j++) {
+                    batches.get(j).cancel(false);
+                }
+                Parser rest = new Parser(tokens, cuts[i], tokens.size());
+                if (errors != null) {
+                    rest.recoverErrors();
+                }
+                statements.addAll(rest.parse());
+                if (errors != null) {
+                    errors.addAll(rest.getErrors());
+                }
+                break;
+            }
+            statements.addAll(batch);
+        }
+        return statements;
+    }
+
+    // null when the batch does not parse cleanly on its own
+    private List<Stmt> parseBatch(int from, int to){
+        try {
+            return new Parser(tokens, from, to).parse();
+        } catch (SyntaxError e) {
+            return null;
+        }
+    }
+
+    // token indexes where batches start, plus the token count at the end
+    private int[] cut(int batchSize){
+        List<Integer> cuts = new ArrayList<>();
+        cuts.add(0);
+        int depth = 0;
+        int start = 0;
+        for (int i = 0; i < tokens.size(); i++) {
+            TokenType type = tokens.type(i);
+            if (type == TokenType.LEFT_BRACE) {
+                depth++;
+            } else if (type == TokenType.RIGHT_BRACE && --depth < 0) {
+                // unbalanced, leave the rest in one batch and let the parser report it
+                break;
+            }
+            if (depth == 0 && (type == TokenType.SEMICOLON || type == TokenType.RIGHT_BRACE) && i + 1 - start >= batchSize) {
+                TokenType next = tokens.type(i + 1);
+                if (next != TokenType.ELSE && next != TokenType.SEMICOLON && next != TokenType.EOF) {
+                    start = i + 1;
+                    cuts.add(start);
+                }
+            }
+        }
+        cuts.add(tokens.size());
+
+        int[] result = new int[cuts.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = cuts.get(i);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,10 @@
+package parser;
+
+// Called by the Parser as it enters and leaves grammar rules, see Parser.setListener().
+// token is the index of the next token to be read, so exit minus enter is the number of tokens the rule took.
+// Rules cut short by a syntax error get no exit call.
+public interface ParseListener {
+    void enter(ParseRule rule, int token);
+
+    void exit(ParseRule rule, int token);
+}
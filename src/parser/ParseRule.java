@@ -0,0 +1,18 @@
+package parser;
+
+// grammar rules reported to a ParseListener
+public enum ParseRule {
+    VAR_DECLARATION,
+    EXPRESSION_STATEMENT,
+    PRINT,
+    BLOCK,
+    IF,
+    WHILE,
+    // a whole expression, from where a statement or declaration asks for one
+    EXPRESSION,
+    // one operand; for '(' and 'new' it takes no tokens, the operand is reported as GROUPING or NEW_ARRAY
+    PRIMARY,
+    GROUPING,
+    NEW_ARRAY,
+    ARRAY_LITERAL
+}
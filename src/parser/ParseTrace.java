@@ -0,0 +1,73 @@
+package parser;
+
+import java.util.Arrays;
+
+// ParseListener that profiles the grammar: per rule, how often it ran, how many tokens it took and
+// how long it took in nanoseconds. Nested rules are counted in their parents' tokens and time too.
+public class ParseTrace implements ParseListener {
+    private static final ParseRule[] RULES = ParseRule.values();
+
+    private final long[] counts = new long[RULES.length];
+    private final long[] tokens = new long[RULES.length];
+    private final long[] nanos = new long[RULES.length];
+
+    // rules entered and not left yet
+    private byte[] openRules = new byte[16];
+    private int[] openTokens = new int[16];
+    private long[] openTimes = new long[16];
+    private int depth;
+
+    @Override
+    public void enter(ParseRule rule, int token) {
+        if (depth == openRules.length) {
+            openRules = Arrays.copyOf(openRules, depth * 2);
+            openTokens = Arrays.copyOf(openTokens, depth * 2);
+            openTimes = Arrays.copyOf(openTimes, depth * 2);
+        }
+        openRules[depth] = (byte) rule.ordinal();
+        openTokens[depth] = token;
+        openTimes[depth] = System.nanoTime();
+        depth++;
+    }
+
+    @Override
+    public void exit(ParseRule rule, int token) {
+        long now = System.nanoTime();
+        // rules above this one were given up after a syntax error, they never get their own exit
+        int at = depth - 1;
+        while (at >= 0 && openRules[at] != rule.ordinal()) {
+            at--;
+        }
+        if (at < 0) {
+            return;
+        }
+        counts[rule.ordinal()]++;
+        tokens[rule.ordinal()] += token - openTokens[at];
+        nanos[rule.ordinal()] += now - openTimes[at];
+        depth = at;
+    }
+
+    public long count(ParseRule rule) {
+        return counts[rule.ordinal()];
+    }
+
+    public long tokens(ParseRule rule) {
+        return tokens[rule.ordinal()];
+    }
+
+    public long nanos(ParseRule rule) {
+        return nanos[rule.ordinal()];
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder result = new StringBuilder();
+        result.append(String.format("%-21s %10s %10s %12s%n", "rule", "calls", "tokens", "ns"));
+        for (ParseRule rule : RULES) {
+            if (counts[rule.ordinal()] > 0) {
+                result.append(String.format("%-21s %10d %10d %12d%n", rule, count(rule), tokens(rule), nanos(rule)));
+            }
+        }
+        return result.toString();
+    }
+}
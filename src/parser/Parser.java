@@ -2,35 +2,229 @@ package parser;
 
 import java.util.ArrayList;
 import java.util.EnumSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
 import lexer.Lexer;
 import lexer.Token;
+import lexer.TokenBuffer;
 import lexer.TokenType;
 import parser.exprs.*;
 import parser.stmts.*;
 
 public class Parser{
-    private List<Token> tokens;
+    private final TokenSource tokens;
     private int current = 0;
+    // set in recovery mode, collects every syntax error instead of stopping at the first
+    private List<SyntaxError> errors;
+    private NodeFactory nodes = new NodeFactory();
+    // null unless someone traces the parse, every hook is a single null check then
+    private ParseListener listener;
 
     public Parser(List<Token> tokens){
+        this(TokenBuffer.of(tokens));
+    }
+
+    // reads kinds straight out of the packed buffer, Token objects are only built for consumed tokens
+    public Parser(TokenBuffer tokens){
+        this(new BufferTokenSource(tokens));
+    }
+
+    // streaming: tokens are pulled as parsing reaches them and only a few are held at a time,
+    // e.g. new Parser(lexer.stream()) lexes and parses in one pass without a token list
+    public Parser(Iterator<Token> tokens){
+        this(new TokenRing(tokens));
+    }
+
+    private Parser(TokenSource tokens){
         this.tokens = tokens;
     }
 
+    // parses tokens [from, to) of the buffer as if they were the whole input
+    Parser(TokenBuffer tokens, int from, int to){
+        this(new BufferTokenSource(tokens, to));
+        current = from;
+    }
+
+    // recovery mode: a broken statement is recorded, skipped and left in the tree as an ErrorStmt,
+    // so one pass reports every syntax error; getErrors() lists them afterwards
+    public void recoverErrors(){
+        errors = new ArrayList<>();
+    }
+
+    public List<SyntaxError> getErrors(){
+        return errors != null ? errors : List.of();
+    }
+
+    // reports every grammar rule entered and left, e.g. a ParseTrace to profile the grammar; null turns it off
+    public void setListener(ParseListener listener){
+        this.listener = listener;
+    }
+
+    private void enter(ParseRule rule){
+        if (listener != null) {
+            listener.enter(rule, current);
+        }
+    }
+
+    private void exit(ParseRule rule){
+        if (listener != null) {
+            listener.exit(rule, current);
+        }
+    }
+
+    // identical expressions come back as one shared node (see HashConsingFactory), so nodes must not be
+    // changed after parsing, and per-node results found for one occurrence hold for all of them
+    public void shareSubtrees(){
+        nodes = new HashConsingFactory();
+    }
+
     public List<Stmt> parse(){
-        List<Stmt> statements = new ArrayList<>();
+        OpenStmt program = new OpenStmt(OpenStmt.PROGRAM);
+        List<OpenStmt> open = new ArrayList<>();
+        open.add(program);
+        run(open, null);
+        return program.statements;
+    }
+
+    // same as parse() into a flat Ast, each top-level statement's nodes are garbage as soon as it is flattened
+    public Ast parseAst(){
+        OpenStmt program = new OpenStmt(OpenStmt.PROGRAM);
+        program.ast = new Ast();
+        List<OpenStmt> open = new ArrayList<>();
+        open.add(program);
+        run(open, null);
+        return program.ast;
+    }
+
+    // Statements that contain statements (blocks, if, while) are kept on an explicit stack of OpenStmt
+    // instead of the Java call stack, so nesting depth is only limited by the heap.
+    // value is a finished statement to hand to the innermost open one, null when there is none;
+    // returns the statement that finishes the outermost.
+    private Stmt run(List<OpenStmt> open, Stmt value){
+        while (!open.isEmpty()) {
+            OpenStmt top = open.get(open.size() - 1);
+            if (value != null) {
+                top.add(value);
+            }
+            try {
+                value = step(open, top);
+            } catch (SyntaxError e) {
+                value = recover(open, e);
+            }
+        }
+        return value;
+    }
+
+    // moves the innermost open statement on by one child: returns a finished statement, or null
+    // after opening another one
+    private Stmt step(List<OpenStmt> open, OpenStmt top){
+        switch (top.kind) {
+            case OpenStmt.PROGRAM:
+                if (isAtEnd()) {
+                    open.remove(open.size() - 1);
+                    return new BlockStmt(top.statements);
+                }
+                top.start = current;
+                return startStatement(open);
+            case OpenStmt.BLOCK:
+                if (peekType() == TokenType.RIGHT_BRACE) {
+                    consume(TokenType.RIGHT_BRACE, "Expected '}' to close block");
+                    nodes.bindingsChanged();
+                    open.remove(open.size() - 1);
+                    exit(ParseRule.BLOCK);
+                    return new BlockStmt(top.statements);
+                }
+                if (peekType() == TokenType.EOF) {
+                    // the block itself is broken, so the error belongs to the statement list around it
+                    open.remove(open.size() - 1);
+                    throw error("Unclosed block: Expected '{' but reached end of file");
+                }
+                top.start = current;
+                return startStatement(open);
+            case OpenStmt.IF:
+                if (top.children == 0) {
+                    return startStatement(open);
+                }
+                // a branch is a scope of its own even without braces, what it declared is gone again
+                nodes.bindingsChanged();
+                if (top.children == 1 && peekType() == TokenType.ELSE) {
+                    consume(TokenType.ELSE, "Expected 'else' keyword");
+                    return startStatement(open);
+                }
+                open.remove(open.size() - 1);
+                exit(ParseRule.IF);
+                return new IfStmt(top.condition, top.body, top.elseBranch);
+            default:
+                if (top.children == 0) {
+                    return startStatement(open);
+                }
+                nodes.bindingsChanged();
+                open.remove(open.size() - 1);
+                exit(ParseRule.WHILE);
+                return new WhileStmt(top.condition, top.body);
+        }
+    }
+
+    // strict mode lets the error through. In recovery mode the statement being read in the innermost
+    // block (or the program) is dropped with everything opened inside it, the rest of it is skipped
+    // and an ErrorStmt takes its place.
+    private Stmt recover(List<OpenStmt> open, SyntaxError e){
+        if (errors == null) {
+            throw e;
+        }
+        int list = open.size() - 1;
+        while (list >= 0 && open.get(list).kind != OpenStmt.PROGRAM && open.get(list).kind != OpenStmt.BLOCK) {
+            list--;
+        }
+        if (list < 0) {
+            throw e;
+        }
+        open.subList(list + 1, open.size()).clear();
+        errors.add(e);
+        synchronize(open.get(list).start);
+        return new ErrorStmt(e);
+    }
+
+    // skips the rest of a broken statement: up to and including its ';' or the '}' closing a block
+    // it opened, or up to the '}' of the enclosing block, which is left for parseBlock to close
+    private void synchronize(int start){
+        int depth = 0;
         while (!isAtEnd()) {
-            statements.add(parseStatement());
+            TokenType type = peekType();
+            if (type == TokenType.SEMICOLON && depth == 0) {
+                current++;
+                return;
+            } else if (type == TokenType.LEFT_BRACE) {
+                depth++;
+            } else if (type == TokenType.RIGHT_BRACE) {
+                if (depth == 0) {
+                    // a stray '}' at the top level has no block to close it, step over it
+                    if (current == start) {
+                        current++;
+                    }
+                    return;
+                }
+                depth--;
+                if (depth == 0) {
+                    current++;
+                    return;
+                }
+            }
+            current++;
         }
-        return statements;
+    }
+
+    private SyntaxError error(String message){
+        return new SyntaxError(message, tokens.offset(current));
     }
 
     public Token peek(){
-        if (current >= tokens.size()) {
-            return new Token(TokenType.EOF, "");
-        }
-        return tokens.get(current);
+        return tokens.token(current);
+    }
+
+    private TokenType peekType(){
+        return tokens.type(current);
     }
 
     private Token advance() {
@@ -39,91 +233,237 @@ public class Parser{
     }
     
     private boolean isAtEnd() {
-        return peek().getType() == TokenType.EOF;
+        return peekType() == TokenType.EOF;
     }
     
     private Token previous() {
-        return tokens.get(current - 1);
+        return tokens.token(current - 1);
     }
 
     private boolean match(TokenType expected) {
-        if (peek().getType() == expected) {
-            advance();  // Consume the token
+        if (peekType() == expected) {
+            current++;  // Consume the token
             return true;
         }
         return false;
     }
 
     public Token consume(TokenType expected) {
-        return consume(expected, "Expected " + expected + " but found " + peek().getType());
+        return consume(expected, "Expected " + expected + " but found " + peekType());
     }
 
     public Token consume(TokenType expected, String errorMessage){
-        if (peek().getType() == TokenType.EOF) {
-            throw new RuntimeException("Unexpected end of file. " + errorMessage);
+        if (peekType() == TokenType.EOF) {
+            throw error("Unexpected end of file. " + errorMessage);
         }
-        if (expected == peek().getType()){
-            Token curr = tokens.get(current);
-            if (current < tokens.size()){
-                current++;
-            }
+        if (expected == peekType()){
+            Token curr = tokens.token(current);
+            current++;
             return curr;
         } else {
-            throw new RuntimeException(errorMessage);
+            throw error(errorMessage);
         }
     }
 
     public LiteralExpr parseLiteral(){
         Token curr = peek();
         if (curr.getType() == TokenType.NUMBER_LITERALS){
-            double num = Double.parseDouble(curr.getValue());
             consume(TokenType.NUMBER_LITERALS, "Not a Number");
-            return new LiteralExpr(num, TokenType.NUMBER_LITERALS);
+            return nodes.literal(curr.getLong());
         } else if (curr.getType() == TokenType.STRING_LITERALS){
             consume(TokenType.STRING_LITERALS, "Not a String");
-            return new LiteralExpr(curr.getValue(), TokenType.STRING_LITERALS);
+            return nodes.literal(curr.getValue());
         } else if (curr.getType() == TokenType.CHAR_LITERALS){
             char chr = curr.getValue().charAt(0);
             consume(TokenType.CHAR_LITERALS, "Not a Char");
-            return new LiteralExpr(chr, TokenType.CHAR_LITERALS);
+            return nodes.literal(chr);
         }
         return null;
     }
 
 // 1️⃣ Parentheses (highest precedence) → (expr)
-// 2️⃣ Unary operators → +, -, !
-// 3️⃣ Multiplication & Division → *, /
-// 4️⃣ Addition & Subtraction → +, -
-// 5️⃣ Comparison Operators → <, >, <=, >=, ==, !=
-// 6️⃣ Logical AND → &&
-// 7️⃣ Logical OR → ||
-// 8️⃣ Assignment (lowest precedence) → =
+// 2️⃣ Postfix operators → ++, --
+// 3️⃣ Unary operators → +, -, !, prefix ++, --
+// 4️⃣ Multiplication, Division & Modulo → *, /, %
+// 5️⃣ Addition & Subtraction → +, -
+// 6️⃣ Comparison Operators → <, >, <=, >=, ==, !=
+// 7️⃣ Bitwise AND → &
+// 8️⃣ Bitwise OR → |
+// 9️⃣ Logical AND → &&
+// 🔟 Logical OR → ||
+// 1️⃣1️⃣ Assignment (lowest precedence) → =, +=, -=, *=, /=
+
+    // binding power of every operator that continues an expression, indexed by TokenType ordinal;
+    // 0 ends the expression. A new binary operator only needs an entry here.
+    private static final int[] INFIX_POWER = new int[TokenType.values().length];
+    // operators that assign to the variable on their left, right associative and lowest of all
+    private static final boolean[] ASSIGNMENT = new boolean[TokenType.values().length];
+    private static final int PREFIX_POWER = 9;
+    private static final int POSTFIX_POWER = 10;
+
+    static {
+        infix(2, TokenType.OR);
+        infix(3, TokenType.AND);
+        infix(4, TokenType.BITWISE_OR);
+        infix(5, TokenType.BITWISE_AND);
+        infix(6, TokenType.EQUALS, TokenType.NOT_EQUALS, TokenType.LESS_THAN, TokenType.GREATER_THAN,
+                TokenType.LESS_THAN_EQUALS, TokenType.GREATER_THAN_EQUALS);
+        infix(7, TokenType.PLUS, TokenType.MINUS);
+        infix(8, TokenType.MULTIPLY, TokenType.DIVIDE, TokenType.MOD);
+        infix(POSTFIX_POWER, TokenType.INCREMENT, TokenType.DECREMENT);
+
+        for (TokenType type : new TokenType[] {TokenType.ASSIGN, TokenType.PLUS_EQUALS, TokenType.MINUS_EQUALS,
+                TokenType.MULT_EQUALS, TokenType.DIV_EQUALS}) {
+            ASSIGNMENT[type.ordinal()] = true;
+        }
+    }
+
+    private static void infix(int power, TokenType... types) {
+        for (TokenType type : types) {
+            INFIX_POWER[type.ordinal()] = power;
+        }
+    }
 
     public Expr parseExpression(){
-        return parseAssignment();
+        return parseExpression(0);
+    }
+
+    // Pratt parser: read one operand, then fold in operators for as long as they bind tighter than minPower.
+    // The right operand of a binary operator is parsed with the operator's own power, so equal powers
+    // associate to the left. Operands that wait for a nested expression (the left side of a binary
+    // operator, a prefix operator, an assignment, a '(' or a 'new' size) go on an explicit stack of
+    // OpenExpr instead of the Java call stack, so nesting depth is only limited by the heap.
+    private Expr parseExpression(int minPower){
+        enter(ParseRule.EXPRESSION);
+        Expr expr = parseExpression(new ArrayList<>(), minPower);
+        exit(ParseRule.EXPRESSION);
+        return expr;
+    }
+
+    // open may already hold operands, the expression read first is handed to the innermost of them
+    private Expr parseExpression(List<OpenExpr> open, int minPower){
+        int power = minPower;
+
+        operand:
+        while (true) {
+            Expr expr = parsePrefix(open, power);
+            if (expr == null) {
+                // an open operand was pushed, its nested expression starts at the top level
+                power = open.get(open.size() - 1).inner;
+                continue;
+            }
+
+            while (true) {
+                int infix = INFIX_POWER[peekType().ordinal()];
+                if (infix > power) {
+                    Token operator = advance();
+                    if (infix == POSTFIX_POWER) {
+                        if (!(expr instanceof VariableExpr)){
+                            throw error("Postfix increment/decrement can only be applied to variables");
+                        }
+                        expr = nodes.postfix(expr, operator);
+                        continue;
+                    }
+                    open.add(new OpenExpr(OpenExpr.BINARY, power, infix, expr, operator));
+                    power = infix;
+                    continue operand;
+                }
+
+                // the expression at this power is complete, hand it to the operand waiting for it
+                if (open.isEmpty()) {
+                    return expr;
+                }
+                OpenExpr top = open.remove(open.size() - 1);
+                power = top.outer;
+                switch (top.kind) {
+                    case OpenExpr.BINARY:
+                        expr = nodes.binary(top.left, top.operator, expr);
+                        break;
+                    case OpenExpr.ASSIGNMENT:
+                        expr = new AssignmentExpr(top.name, top.operator, expr);
+                        break;
+                    case OpenExpr.UNARY:
+                        expr = nodes.unary(top.operator, expr);
+                        break;
+                    case OpenExpr.GROUPING:
+                        consume(TokenType.RIGHT_PAREN, "Expected ')' to close grouping.");
+                        exit(ParseRule.GROUPING);
+                        expr = nodes.grouping(expr);
+                        break;
+                    default:
+                        top.dimensions.add(expr);
+                        consume(TokenType.RIGHT_BRACKET, "Expected ']' after expression");
+                        expr = parseDimensions(open, top);
+                        if (expr == null) {
+                            power = 0;
+                            continue operand;
+                        }
+                }
+            }
+        }
+    }
+
+    // one operand, or null after pushing an OpenExpr whose nested expression comes next
+    private Expr parsePrefix(List<OpenExpr> open, int minPower){
+        TokenType curr = peekType();
+
+        //assignment, only where an expression starts
+        if (curr == TokenType.IDENTIFIER && minPower == 0 && ASSIGNMENT[tokens.type(current + 1).ordinal()]){
+            Token name = advance();
+            Token assign = advance();
+            OpenExpr assignment = new OpenExpr(OpenExpr.ASSIGNMENT, minPower, 0, null, assign);
+            assignment.name = name;
+            open.add(assignment);
+            return null;
+        }
+        //unary handling
+        if (curr == TokenType.MINUS || curr == TokenType.PLUS || curr == TokenType.NOT){
+            Token operator = advance();
+            open.add(new OpenExpr(OpenExpr.UNARY, minPower, PREFIX_POWER, null, operator));
+            return null;
+        }
+        //prefix inc/dec handling
+        if (curr == TokenType.INCREMENT || curr == TokenType.DECREMENT){
+            Token operator = advance();
+            if (peekType() != TokenType.IDENTIFIER) {
+                throw error("Increment/decrement can only be applied to variables");
+            }
+            Token variable = consume(TokenType.IDENTIFIER, "Expected variable name");
+            return nodes.unary(operator, nodes.variable(variable.getValue(), variable.getSymbol()));
+        }
+        return parsePrimary(open, minPower);
     }
 
     private static final Set<TokenType> TYPE_TOKENS = EnumSet.of(
     TokenType.INT, TokenType.FLOAT, TokenType.BOOLEAN, TokenType.CHAR, TokenType.STRING_LITERALS
     );
 
-    private boolean isType(Token token) {
-        return TYPE_TOKENS.contains(token.getType());
+    private boolean isType(TokenType type) {
+        return TYPE_TOKENS.contains(type);
     }
 
     public Stmt parseStatement(){
-        Token curr = peek();
+        List<OpenStmt> open = new ArrayList<>();
+        return run(open, startStatement(open));
+    }
 
-        if (curr.getType() == TokenType.IF){
-            return parseIf();
-        } else if (curr.getType() == TokenType.WHILE){
-            return parseWhile();
-        } else if (curr.getType() == TokenType.PRINT){
+    // reads a statement that holds no others, or opens one that does and returns null
+    private Stmt startStatement(List<OpenStmt> open){
+        TokenType curr = peekType();
+
+        if (curr == TokenType.IF){
+            open.add(openIf());
+            return null;
+        } else if (curr == TokenType.WHILE){
+            open.add(openWhile());
+            return null;
+        } else if (curr == TokenType.PRINT){
             return parsePrint();
-        } else if (curr.getType() == TokenType.VAR || isType(curr)){
+        } else if (curr == TokenType.VAR || isType(curr)){
             return parseVarDecleration();
-        } else if (curr.getType() == TokenType.LEFT_BRACE){
-            return new BlockStmt(parseBlock());
+        } else if (curr == TokenType.LEFT_BRACE){
+            open.add(openBlock());
+            return null;
         }else {
             return parseExpressionStatement();
         }
@@ -131,126 +471,118 @@ public class Parser{
 
     //parsing block statements
     public List<Stmt> parseBlock() {
-        List<Stmt> statements = new ArrayList<>();
+        OpenStmt block = openBlock();
+        List<OpenStmt> open = new ArrayList<>();
+        open.add(block);
+        run(open, null);
+        return block.statements;
+    }
 
-        if (peek().getType() == TokenType.EOF) {
-            throw new RuntimeException("Unclosed block: Expected '}' but reached end of file");
+    private OpenStmt openBlock(){
+        enter(ParseRule.BLOCK);
+        if (peekType() == TokenType.EOF) {
+            throw error("Unclosed block: Expected '}' but reached end of file");
         }
-        
         consume(TokenType.LEFT_BRACE, "Expected '{' to begin block");
-
-        while (peek() != null && peek().getType() != TokenType.RIGHT_BRACE) {
-            if (peek().getType() == TokenType.EOF) {
-                throw new RuntimeException("Unclosed block: Expected '{' but reached end of file");
-            }
-            statements.add(parseStatement());
-        }
-
-        consume(TokenType.RIGHT_BRACE, "Expected '}' to close block");
-        return statements;
+        nodes.bindingsChanged();
+        return new OpenStmt(OpenStmt.BLOCK);
     }
 
     //parsing If
     public Stmt parseIf(){
+        List<OpenStmt> open = new ArrayList<>();
+        open.add(openIf());
+        return run(open, null);
+    }
+
+    // the branches are read by step(), a '{' branch is a block statement like any other
+    private OpenStmt openIf(){
+        enter(ParseRule.IF);
         consume(TokenType.IF, "Expected 'If' keyword");
         consume(TokenType.LEFT_PAREN, "Expected '(' after 'if'");
-        
-        Expr condition = parseExpression();
 
-        consume(TokenType.RIGHT_PAREN, "Expected ')' after '(' and 'if' keyword" );
-    
-        Stmt thenBranch;
-        if (peek().getType() == TokenType.LEFT_BRACE){
-            thenBranch = new BlockStmt(parseBlock());
-        } else {
-            thenBranch = parseStatement();
-        }
-
-        Stmt elseBranch = null;
-        if (peek() != null && peek().getType() == TokenType.ELSE){
-            consume(TokenType.ELSE, "Expected 'else' keyword");
-            if (peek().getType() == TokenType.LEFT_BRACE){
-                elseBranch = new BlockStmt(parseBlock());
-            } else {
-                elseBranch = parseStatement();
-            }
-        }
+        OpenStmt stmt = new OpenStmt(OpenStmt.IF);
+        stmt.condition = parseExpression();
 
-        return new IfStmt(condition, thenBranch, elseBranch);
+        consume(TokenType.RIGHT_PAREN, "Expected ')' after '(' and 'if' keyword" );
+        return stmt;
     }
     
     //parsing while
     public Stmt parseWhile(){
+        List<OpenStmt> open = new ArrayList<>();
+        open.add(openWhile());
+        return run(open, null);
+    }
+
+    private OpenStmt openWhile(){
+        enter(ParseRule.WHILE);
         consume(TokenType.WHILE, "Expected 'while' keyword");
         consume(TokenType.LEFT_PAREN, "Expected '(' after 'while'");
-        
-        Expr condition = parseExpression();
-        
+
+        OpenStmt stmt = new OpenStmt(OpenStmt.WHILE);
+        stmt.condition = parseExpression();
+
         consume(TokenType.RIGHT_PAREN, "Expected ')' after '(' and 'while' keyword" );
-        
-        Stmt body;
-        if (peek().getType() == TokenType.LEFT_BRACE){
-            body = new BlockStmt(parseBlock());
-        } else {
-            body = parseStatement();
-        }
-        
-        return new WhileStmt(condition, body);
+        return stmt;
     }
 
     //parsing print statement
     public Stmt parsePrint() {
-        consume(peek().getType(), "Expected 'print' or 'println' keyword");
+        enter(ParseRule.PRINT);
+        consume(peekType(), "Expected 'print' or 'println' keyword");
     
         consume(TokenType.LEFT_PAREN, "Expected '(' after 'print' or 'println'");
         Expr expr = parseExpression();
         consume(TokenType.RIGHT_PAREN, "Expected ')' after expression");
         consume(TokenType.SEMICOLON, "Expected ';' after print statement");
+        exit(ParseRule.PRINT);
     
         return new PrintStmt(expr);
     }
 
     public Stmt parseVarDecleration(){
-        Token type = peek();
-
-        if (!(isType(type) || type.getType() == TokenType.VAR)) {
-            throw new RuntimeException("Expected type keyword (int, float, boolean, char, var) in variable declaration.");
+        enter(ParseRule.VAR_DECLARATION);
+        if (!(isType(peekType()) || peekType() == TokenType.VAR)) {
+            throw error("Expected type keyword (int, float, boolean, char, var) in variable declaration.");
         }
        
-        advance();
+        Token type = advance();
        
         List<Integer> dimensions = new ArrayList<>();
         boolean isArray = false;
         int dimensionCount = 0;
        
-        while (peek().getType() == TokenType.LEFT_BRACKET){
+        while (peekType() == TokenType.LEFT_BRACKET){
             consume(TokenType.LEFT_BRACKET, "Expected '[' in array declaration");
             isArray = true;
             dimensionCount++;
-            if (peek().getType() == TokenType.RIGHT_BRACKET) {
+            if (peekType() == TokenType.RIGHT_BRACKET) {
                 consume(TokenType.RIGHT_BRACKET, "Expected ']' after '['");
                 dimensions.add(-1);
             } else {
-                throw new RuntimeException("Invalid syntax: Array dimensions cannot be specified in variable declaration, only during initialization");
+                throw error("Invalid syntax: Array dimensions cannot be specified in variable declaration, only during initialization");
             }
         }
         Token name = consume(TokenType.IDENTIFIER, "Expected identifier after 'var'");
+        // the name is bound from here on, its own initializer already sees it
+        nodes.bindingsChanged();
        
         Expr initializer = null;
-        if (peek().getType() == TokenType.ASSIGN){
+        if (peekType() == TokenType.ASSIGN){
             consume(TokenType.ASSIGN, "Expected '=' after variable name");
            
-            if (peek().getType() == TokenType.SEMICOLON) {
-                throw new RuntimeException("Missing value in variable assignment");
+            if (peekType() == TokenType.SEMICOLON) {
+                throw error("Missing value in variable assignment");
             }
     
             if (isArray){
-                if (peek().getType() == TokenType.NEW){
+                if (peekType() == TokenType.NEW){
                     initializer = parseNewArray();
-                } else if (peek().getType() == TokenType.LEFT_BRACE){
-                    initializer = parseArrayLiteral(dimensions, 0);
+                } else if (peekType() == TokenType.LEFT_BRACE){
+                    initializer = parseArrayLiteral(dimensions);
                 } else {
-                    throw new RuntimeException("Array initialization must use 'new' keyword or array literal");
+                    throw error("Array initialization must use 'new' keyword or array literal");
                 }
             } else {
                 initializer = parseExpression();
@@ -259,271 +591,211 @@ public class Parser{
         
         // ensure semicolon is consumed for all variable declarations
         consume(TokenType.SEMICOLON, "Expected ';' after variable declaration");
+        exit(ParseRule.VAR_DECLARATION);
         return new VarStmt(type, name, initializer, isArray, dimensionCount);
     }
 
     //parsing arrays
-    private Expr parseArrayLiteral(List<Integer> dimensions, int depth){
+    // nested literals are tracked in a list of the element lists still open, outermost first
+    private Expr parseArrayLiteral(List<Integer> dimensions){
+        enter(ParseRule.ARRAY_LITERAL);
         consume(TokenType.LEFT_BRACE, "Expected '{' for array literal");
-        List<Expr> elements = new ArrayList<>();
+        List<List<Expr>> open = new ArrayList<>();
+        open.add(new ArrayList<>());
 
-        int expectedSize = dimensions.size() > depth ? dimensions.get(depth) : -1;
-        boolean dynamicSize = (expectedSize == -1);
-
-        if (peek().getType() == TokenType.RIGHT_BRACE) {
-            consume(TokenType.RIGHT_BRACE, "Expected '}' at the end of array literal");
-            return new ArrayLiteralExpr(elements);
-        }
-    
         while (true) {
-            //handle eof
-            if (peek().getType() == TokenType.EOF || peek().getType() == TokenType.SEMICOLON) {
-                throw new RuntimeException("Missing closing '}' in array literal");
-            }
+            int depth = open.size() - 1;
+            List<Expr> elements = open.get(depth);
+            Expr done = null;
+
+            if (elements.isEmpty() && peekType() == TokenType.RIGHT_BRACE) {
+                consume(TokenType.RIGHT_BRACE, "Expected '}' at the end of array literal");
+                open.remove(depth);
+                exit(ParseRule.ARRAY_LITERAL);
+                done = new ArrayLiteralExpr(elements);
+            } else {
+                //handle eof
+                if (peekType() == TokenType.EOF || peekType() == TokenType.SEMICOLON) {
+                    throw error("Missing closing '}' in array literal");
+                }
 
-            //handle left brace
-            if (peek().getType() == TokenType.LEFT_BRACE) {
-                if (depth + 1 >= dimensions.size()  && !dynamicSize) {
-                    throw new RuntimeException("Unexpected nested array beyond declared dimensions.");
+                //handle left brace
+                if (peekType() == TokenType.LEFT_BRACE) {
+                    if (depth + 1 >= dimensions.size()  && expectedSize(dimensions, depth) != -1) {
+                        throw error("Unexpected nested array beyond declared dimensions.");
+                    }
+                    enter(ParseRule.ARRAY_LITERAL);
+                    consume(TokenType.LEFT_BRACE, "Expected '{' for array literal");
+                    open.add(new ArrayList<>());
+                    continue;
                 }
-                elements.add(parseArrayLiteral(dimensions, depth + 1));
-            } else {
                 // prevent multiple consecutive commas
-                if (peek().getType() == TokenType.COMMA) {
-                    throw new RuntimeException("Unexpected comma. Missing element before comma.");
+                if (peekType() == TokenType.COMMA) {
+                    throw error("Unexpected comma. Missing element before comma.");
                 }
-                
                 elements.add(parseExpression());
             }
 
-            //for commas
-            if (peek().getType() == TokenType.COMMA) {
-                consume(TokenType.COMMA, "Expected ',' between array elements");
-                // chek trail comma
-                if (peek().getType() == TokenType.RIGHT_BRACE) {
-                    break;
+            // after an element: a ',' leads to the next one, a '}' closes the literal and makes it
+            // an element of the one around it
+            while (true) {
+                if (done != null) {
+                    if (open.isEmpty()) {
+                        return done;
+                    }
+                    open.get(open.size() - 1).add(done);
+                    done = null;
+                }
+                depth = open.size() - 1;
+                elements = open.get(depth);
+
+                //for commas
+                if (peekType() == TokenType.COMMA) {
+                    consume(TokenType.COMMA, "Expected ',' between array elements");
+                    // chek trail comma
+                    if (peekType() != TokenType.RIGHT_BRACE) {
+                        break;
+                    }
+                } else if (peekType() != TokenType.RIGHT_BRACE) {
+                    throw error("Expected ',' or '}' after array element, found: " + peekType());
                 }
-            } else if (peek().getType() == TokenType.RIGHT_BRACE) {
-                break;
-            } else {
-                throw new RuntimeException("Expected ',' or '}' after array element, found: " + peek().getType());
-            }
-        }
 
-        consume(TokenType.RIGHT_BRACE, "Expected '}' at the end of array literal");
-        
-        if (!dynamicSize){
-            if (elements.size() > expectedSize) {
-                throw new RuntimeException("Too many elements in array literal at depth " + depth + " (expected " + expectedSize + ", got " + elements.size() + ")");
-            } else if (elements.size() < expectedSize) {
-                throw new RuntimeException("Too few elements in array literal at depth " + depth + " (expected " + expectedSize + ", got " + elements.size() + ")");
+                consume(TokenType.RIGHT_BRACE, "Expected '}' at the end of array literal");
+
+                int expectedSize = expectedSize(dimensions, depth);
+                if (expectedSize != -1){
+                    if (elements.size() > expectedSize) {
+                        throw error("Too many elements in array literal at depth " + depth + " (expected " + expectedSize + ", got " + elements.size() + ")");
+                    } else if (elements.size() < expectedSize) {
+                        throw error("Too few elements in array literal at depth " + depth + " (expected " + expectedSize + ", got " + elements.size() + ")");
+                    }
+                }
+                open.remove(depth);
+                exit(ParseRule.ARRAY_LITERAL);
+                done = new ArrayLiteralExpr(elements);
             }
         }
-        return new ArrayLiteralExpr(elements);
     }
 
+    // -1 when the size at this depth is not fixed
+    private static int expectedSize(List<Integer> dimensions, int depth){
+        return dimensions.size() > depth ? dimensions.get(depth) : -1;
+    }
+
+    // an initializer ends with the array, no operator may follow it
     private Expr parseNewArray(){
-        //debugger, remove later
-        System.out.println("Entering parseNewArray");
+        List<OpenExpr> open = new ArrayList<>();
+        Expr expr = openNewArray(open, Integer.MAX_VALUE);
+        return expr != null ? expr : parseExpression(open, 0);
+    }
+
+    // new T[...]: returns the finished expression, or null after pushing it to read a size expression
+    private Expr openNewArray(List<OpenExpr> open, int power){
+        enter(ParseRule.NEW_ARRAY);
         consume(TokenType.NEW, "Expected 'new' keyword for array allocation");
-        if (!isType(peek())) {
-            throw new RuntimeException("Expected type after 'new', got " + peek().getType());
+        if (!isType(peekType())) {
+            throw error("Expected type after 'new', got " + peekType());
         }
         
-        Token type = consume(peek().getType(), "Expected type after new");
-
-        List<Expr> dimensions = new ArrayList<>();
-        boolean foundDimension = false;
+        Token type = consume(peekType(), "Expected type after new");
+        OpenExpr array = new OpenExpr(OpenExpr.NEW_ARRAY, power, 0, null, type);
+        array.dimensions = new ArrayList<>();
+        return parseDimensions(open, array);
+    }
 
-        while(peek().getType() == TokenType.LEFT_BRACKET){
-            foundDimension = true;
+    // the brackets after new T, up to the next size expression (null, with the array pushed) or the end
+    private Expr parseDimensions(List<OpenExpr> open, OpenExpr array){
+        List<Expr> dimensions = array.dimensions;
+        while(peekType() == TokenType.LEFT_BRACKET){
             consume(TokenType.LEFT_BRACKET, "Expected '[' after type");
-            if (peek().getType() == TokenType.RIGHT_BRACKET) {
+            if (peekType() == TokenType.RIGHT_BRACKET) {
                 consume(TokenType.RIGHT_BRACKET, "Expected ']' after '['");
                 if (dimensions.isEmpty()) {
-                    throw new RuntimeException("First dimension size must be specified in array creation");
+                    throw error("First dimension size must be specified in array creation");
                 }
                 dimensions.add(null);
             } else {
-                dimensions.add(parseExpression());
-                consume(TokenType.RIGHT_BRACKET, "Expected ']' after expression");
+                open.add(array);
+                return null;
             }
         }
-        if (!foundDimension) {
-            throw new RuntimeException("Array creation requires at least one dimension");
+        if (dimensions.isEmpty()) {
+            throw error("Array creation requires at least one dimension");
         }
-        return new NewArrayExpr(type, dimensions);
+        exit(ParseRule.NEW_ARRAY);
+        return new NewArrayExpr(array.operator, dimensions);
     }
 
     public Stmt parseExpressionStatement(){
+        enter(ParseRule.EXPRESSION_STATEMENT);
         Expr expr = parseExpression();
         consume(TokenType.SEMICOLON, "Expected ';' statement closes");
+        exit(ParseRule.EXPRESSION_STATEMENT);
         return new ExprStmt(expr);
     }
-    
-    public Expr parseAssignment(){
-        Token curr = peek();
-        if (curr.getType() == TokenType.IDENTIFIER){
-            Token next = tokens.get(current + 1);
-            if (next != null && next.getType() == TokenType.ASSIGN){
-                Token name = consume(TokenType.IDENTIFIER, "Expected variable/identifier");
-                Token assign = consume(TokenType.ASSIGN, "Expected '+' after variable name");
-                Expr right = parseExpression();
-                return new AssignmentExpr(name, assign, right);   
-            }
-        }
-        return parseLogical();
-    }
-
-    private Expr parseLogical(){
-        Expr expr = parseLogicalAND();
-
-        while (peek() != null && peek().getType() == TokenType.OR){
-            Token operator = consume(peek().getType(), "Expected '&&' or '||'");
-            Expr right = parseComparison();
-            expr = new BinaryExpr(expr, operator, right);
-        }
-        return expr;
-    }
 
-    private Expr parseLogicalAND(){
-        Expr expr = parseComparison();
-
-        while (peek() != null && peek().getType() == TokenType.AND){
-            Token operator = consume(TokenType.AND, "Expected '&&'");
-            Expr right = parseComparison();
-            expr = new BinaryExpr(expr, operator, right);  
+    private Expr parsePrimary(List<OpenExpr> open, int power){
+        enter(ParseRule.PRIMARY);
+        if (peekType() == TokenType.LEFT_PAREN || peekType() == TokenType.NEW) {
+            // reported as GROUPING or NEW_ARRAY, which stay open while their nested expressions are read
+            exit(ParseRule.PRIMARY);
+            return primary(open, power);
         }
+        Expr expr = primary(open, power);
+        exit(ParseRule.PRIMARY);
         return expr;
     }
-
-    private boolean isComparisonOpr(TokenType type){
-        return type == TokenType.LESS_THAN || type == TokenType.GREATER_THAN ||
-        type == TokenType.LESS_THAN_EQUALS || type == TokenType.GREATER_THAN_EQUALS ||
-        type == TokenType.EQUALS || type == TokenType.NOT_EQUALS;
-    }
-
-    private Expr parseComparison(){
-        Expr expr = parseTerm();
-
-        while (peek() != null && isComparisonOpr(peek().getType())){
-            Token operator = consume(peek().getType(), "Expected '<' or '<=' or '>' or '>='");
-            Expr right = parseTerm();
-            expr = new BinaryExpr(expr, operator, right);
-        }
-        return expr;
-    }
-
-    private Expr parseTerm(){
-        Expr expr = parseMultiplicative();
-
-        while (peek() != null && (peek().getType() == TokenType.PLUS || peek().getType() == TokenType.MINUS)){
-            Token operator = consume(peek().getType(), "Expected '+' or '-'");
-            Expr right = parseMultiplicative();
-            expr = new BinaryExpr(expr, operator, right);
-        }
-        return expr;
-    }
-
-    private Expr parseFactor(){
-        Token curr = peek();
-
-        //unary handling
-        if (curr.getType() == TokenType.MINUS || curr.getType() == TokenType.PLUS || curr.getType() == TokenType.NOT){
-            Token operator = consume(curr.getType(), "Expected unary operator");
-            Expr right = parseFactor();
-            return new UnaryExpr(operator, right);
-        } 
-        //prefix inc/dec handling 
-        else if (curr.getType() == TokenType.INCREMENT || curr.getType() == TokenType.DECREMENT){
-            Token operator = consume(curr.getType(), "Expected increment/decrement");
-            if (peek().getType() != TokenType.IDENTIFIER) {
-                throw new RuntimeException("Increment/decrement can only be applied to variables");
-            }
-            Token variable = consume(TokenType.IDENTIFIER, "Expected variable name");
-            return new UnaryExpr(operator, new VariableExpr(variable.getValue()));
-        }
-        //handle non-unary
-        Expr expr = parsePrimary();
-
-        //handle postfix
-        if (peek() != null && (peek().getType() == TokenType.INCREMENT || peek().getType() == TokenType.DECREMENT)){
-            if (!(expr instanceof VariableExpr)){
-                throw new RuntimeException("Postfix increment/decrement can only be applied to variables");
-            }
-            Token operator = consume(peek().getType(), "Expected postfix operator");
-            expr = new PostfixExpr(expr, operator);
-        }
-        return expr;
-    }
-
-    private Expr parseMultiplicative() {
-        Expr expr = parseFactor();
     
-        while (peek() != null && (peek().getType() == TokenType.MULTIPLY || peek().getType() == TokenType.DIVIDE)) {
-            Token operator = consume(peek().getType(), "Expected '*' or '/'");
-            Expr right = parseFactor();
-            expr = new BinaryExpr(expr, operator, right);
-        }
-        return expr;
-    }
-
-    private Expr parsePrimary(){
+    private Expr primary(List<OpenExpr> open, int power){
         Token curr = peek();
-        //debugger, remove later
-        System.out.println("Parsing primary expression, current token: " + curr.getType() + " = " + curr.getValue());
 
         switch(curr.getType()){
             case IDENTIFIER:
                 consume(TokenType.IDENTIFIER, "Expected Identifier/Variable");
-                return new VariableExpr(curr.getValue());
+                return nodes.variable(curr.getValue(), curr.getSymbol());
             
             case NUMBER_LITERALS:
                 consume(TokenType.NUMBER_LITERALS, "Expected number");
-                return new LiteralExpr(Double.parseDouble(curr.getValue()), TokenType.NUMBER_LITERALS);
+                return nodes.literal(curr.getLong());
 
             case FLOAT_LITERALS:
                 consume(TokenType.FLOAT_LITERALS, "Expected float");
-                return new LiteralExpr(Double.parseDouble(curr.getValue()), TokenType.FLOAT_LITERALS); 
+                return nodes.literal(curr.getDouble(), TokenType.FLOAT_LITERALS); 
 
             case DOUBLE_LITERALS:  // Add this case
                 consume(TokenType.DOUBLE_LITERALS, "Expected double");
-                return new LiteralExpr(Double.parseDouble(curr.getValue()), TokenType.DOUBLE_LITERALS);
+                return nodes.literal(curr.getDouble(), TokenType.DOUBLE_LITERALS);
             
             case CHAR_LITERALS:
                 consume(TokenType.CHAR_LITERALS, "Expected character literal");
                 String value = curr.getValue();
                 if (value.length() != 1) {
-                    throw new RuntimeException("Invalid character literal: " + value);
+                    throw error("Invalid character literal: " + value);
                 }
-                return new LiteralExpr(value.charAt(0), TokenType.CHAR_LITERALS);
+                return nodes.literal(value.charAt(0));
 
             case NEW:
-                return parseNewArray();
+                return openNewArray(open, power);
             
             case STRING_LITERALS:
                 consume(TokenType.STRING_LITERALS, "Expected string literal");
-                return new LiteralExpr(curr.getValue(), TokenType.STRING_LITERALS);
+                return nodes.literal(curr.getValue());
 
             case BOOLEAN_LITERALS:
                 consume(TokenType.BOOLEAN_LITERALS, "Expected boolean literal");
-                return new LiteralExpr(Boolean.parseBoolean(curr.getValue()), TokenType.BOOLEAN_LITERALS);
+                return nodes.literal(curr.getValue().equals("true"));
             
             case LEFT_PAREN:
-                return parseGrouping();
+                enter(ParseRule.GROUPING);
+                consume(TokenType.LEFT_PAREN, "Expected '(' at start of grouping.");
+                open.add(new OpenExpr(OpenExpr.GROUPING, power, 0, null, curr));
+                return null;
 
             default:
-                throw new RuntimeException("Unexpected token: '" + curr.getValue() + "' of type " + curr.getType() + ". Expected a variable, literal, or expression.");
+                throw error("Unexpected token: '" + curr.getValue() + "' of type " + curr.getType() + ". Expected a variable, literal, or expression.");
         }
     }
 
-    private Expr parseGrouping(){
-        consume(TokenType.LEFT_PAREN, "Expected '(' at start of grouping.");
-        Expr inner = parseExpression();
-        consume(TokenType.RIGHT_PAREN, "Expected ')' to close grouping.");
-        return new GroupingExpr(inner);
-    }
-
     public static void main(String[] args) {
         String sourceCode = "int[] i;" +
                         "i = new int[3]";
@@ -3,9 +3,23 @@ package parser;
 //for statements
 
 public abstract class Stmt {
-}
-
-
+    // what kind() returns, one per node class, see Expr
+    public static final int VAR = 0;
+    public static final int EXPR = 1;
+    public static final int BLOCK = 2;
+    public static final int IF = 3;
+    public static final int WHILE = 4;
+    public static final int PRINT = 5;
+    public static final int ERROR = 6;
+    public static final int ARRAY_ASSIGNMENT = 7;
 
+    private final int kind;
 
+    protected Stmt(int kind) {
+        this.kind = kind;
+    }
 
+    public final int kind() {
+        return kind;
+    }
+}
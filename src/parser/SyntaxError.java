@@ -0,0 +1,18 @@
+package parser;
+
+// a parse error, with the source offset of the token the parser stopped at
+// Lexer.getLines() turns the offset into a line and column when a message needs one
+public class SyntaxError extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    private final int offset;
+
+    public SyntaxError(String message, int offset) {
+        super(message);
+        this.offset = offset;
+    }
+
+    public int getOffset() {
+        return offset;
+    }
+}
@@ -0,0 +1,89 @@
+package parser;
+
+import java.util.Iterator;
+import lexer.SymbolPool;
+import lexer.Token;
+import lexer.TokenStream;
+import lexer.TokenType;
+
+// streaming token source: tokens are pulled from an iterator (e.g. Lexer.stream()) into a small ring
+// as the parser reaches them, so the lexer runs in step with the parser and no token list is ever built.
+// The ring holds the previous token, the current one and LOOKAHEAD - 1 more, which is all the parser reads.
+// Positions come from the TokenStream alongside each token; tokens from any other iterator have none
+// and read as offset -1, like a TokenBuffer made from a list.
+class TokenRing implements TokenSource {
+    static final int LOOKAHEAD = 2;
+    // previous + current + lookahead, rounded up to a power of two
+    private static final int SIZE = 4;
+    private static final int MASK = SIZE - 1;
+
+    private final Iterator<Token> source;
+    // null when the iterator does not report spans
+    private final TokenStream spans;
+    // ids for hand-built identifiers, which come without one; only made when the first one shows up
+    private SymbolPool symbols;
+    private final Token[] ring = new Token[SIZE];
+    private final int[] offsets = new int[SIZE];
+    // number of tokens pulled so far, token i sits in ring[i & MASK] until token i + SIZE replaces it
+    private int pulled;
+    private boolean exhausted;
+    private int end;
+
+    TokenRing(Iterator<Token> source) {
+        this.source = source;
+        this.spans = source instanceof TokenStream stream ? stream : null;
+        this.end = spans != null ? 0 : -1;
+    }
+
+    @Override
+    public TokenType type(int i) {
+        Token token = get(i);
+        return token == null ? TokenType.EOF : token.getType();
+    }
+
+    @Override
+    public Token token(int i) {
+        Token token = get(i);
+        return token == null ? Token.fixed(TokenType.EOF) : token;
+    }
+
+    @Override
+    public int offset(int i) {
+        Token token = get(i);
+        return token == null ? end : offsets[i & MASK];
+    }
+
+    // null once i is past the last token
+    private Token get(int i) {
+        if (i < pulled - SIZE) {
+            throw new IllegalStateException("Token " + i + " is no longer buffered, the parser is at token " + (pulled - LOOKAHEAD));
+        }
+        while (i >= pulled && !exhausted) {
+            Token token = source.hasNext() ? source.next() : null;
+            if (token == null || token.getType() == TokenType.EOF) {
+                exhausted = true;
+            } else {
+                if (token.getType() == TokenType.IDENTIFIER && token.getSymbol() < 0) {
+                    token = intern(token);
+                }
+                ring[pulled & MASK] = token;
+                if (spans != null) {
+                    offsets[pulled & MASK] = spans.offset();
+                    end = spans.offset() + spans.length();
+                } else {
+                    offsets[pulled & MASK] = -1;
+                }
+                pulled++;
+            }
+        }
+        return i < pulled ? ring[i & MASK] : null;
+    }
+
+    private Token intern(Token identifier) {
+        if (symbols == null) {
+            symbols = new SymbolPool();
+        }
+        String name = identifier.getValue();
+        return new Token(name, 0, name.length(), symbols.intern(name), name);
+    }
+}
@@ -0,0 +1,14 @@
+package parser;
+
+import lexer.Token;
+import lexer.TokenType;
+
+// tokens as the Parser reads them, by absolute index; an index past the last token reads as EOF
+interface TokenSource {
+    TokenType type(int i);
+
+    Token token(int i);
+
+    // source offset of token i, or the end of the last token for an index past the end
+    int offset(int i);
+}
@@ -7,6 +7,7 @@ public class ArrayLiteralExpr extends Expr {
     private final List<Expr> elements;
 
     public ArrayLiteralExpr(List<Expr> elements) {
+        super(Expr.ARRAY_LITERAL);
         this.elements = elements;
     }
 
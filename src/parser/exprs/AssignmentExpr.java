@@ -7,8 +7,12 @@ public class AssignmentExpr extends Expr{
     private final Token name;
     private final Token assign;
     private final Expr right;
+    // binding of the target found by the Resolver, -1 until it has run or when the name is not declared
+    private int depth = -1;
+    private int slot = -1;
 
     public AssignmentExpr(Token name, Token assign, Expr right){
+        super(Expr.ASSIGNMENT);
         this.name = name;
         this.right = right;
         this.assign = assign;
@@ -25,4 +29,21 @@ public class AssignmentExpr extends Expr{
     public Token getAssign(){
         return assign;
     }
+
+    public void resolve(int depth, int slot){
+        this.depth = depth;
+        this.slot = slot;
+    }
+
+    public boolean isResolved(){
+        return depth >= 0;
+    }
+
+    public int getDepth(){
+        return depth;
+    }
+
+    public int getSlot(){
+        return slot;
+    }
 }
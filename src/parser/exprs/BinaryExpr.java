@@ -9,6 +9,7 @@ public class BinaryExpr extends Expr{
     private final Token operator;
 
     public BinaryExpr(Expr left, Token operator, Expr right){
+        super(Expr.BINARY);
         this.left = left;
         this.operator = operator;
         this.right = right;
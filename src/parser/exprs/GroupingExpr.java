@@ -6,6 +6,7 @@ public class GroupingExpr extends Expr{
     private final Expr expr;
 
     public GroupingExpr(Expr expr){
+        super(Expr.GROUPING);
         this.expr = expr;
     }
 
@@ -4,16 +4,80 @@ import lexer.TokenType;
 import parser.Expr;
 
 public class LiteralExpr extends Expr{
-    private final Object value;
     private final TokenType tokenType;
-    
-    public LiteralExpr(Object value, TokenType tokenType){
-        this.value = value;
+    // one unboxed field per literal kind, only the one matching tokenType is set
+    private final long longValue;
+    private final double doubleValue;
+    private final char charValue;
+    private final boolean booleanValue;
+    private final String stringValue;
+
+    private LiteralExpr(TokenType tokenType, long longValue, double doubleValue, char charValue, boolean booleanValue, String stringValue){
+        super(Expr.LITERAL);
         this.tokenType = tokenType;
+        this.longValue = longValue;
+        this.doubleValue = doubleValue;
+        this.charValue = charValue;
+        this.booleanValue = booleanValue;
+        this.stringValue = stringValue;
+    }
+
+    public LiteralExpr(long value){
+        this(TokenType.NUMBER_LITERALS, value, 0, '\0', false, null);
+    }
+
+    // FLOAT_LITERALS or DOUBLE_LITERALS
+    public LiteralExpr(double value, TokenType tokenType){
+        this(tokenType, 0, value, '\0', false, null);
+    }
+
+    public LiteralExpr(char value){
+        this(TokenType.CHAR_LITERALS, 0, 0, value, false, null);
+    }
+
+    public LiteralExpr(boolean value){
+        this(TokenType.BOOLEAN_LITERALS, 0, 0, '\0', value, null);
+    }
+
+    public LiteralExpr(String value){
+        this(TokenType.STRING_LITERALS, 0, 0, '\0', false, value);
+    }
+
+    public long getLong(){
+        return longValue;
+    }
+
+    public double getDouble(){
+        return doubleValue;
+    }
+
+    public char getChar(){
+        return charValue;
+    }
+
+    public boolean getBoolean(){
+        return booleanValue;
+    }
+
+    public String getString(){
+        return stringValue;
     }
 
+    // boxed value, for code that does not care about the kind; the typed getters avoid the boxing
     public Object getValue(){
-        return value;
+        switch (tokenType) {
+            case NUMBER_LITERALS:
+                return longValue;
+            case FLOAT_LITERALS:
+            case DOUBLE_LITERALS:
+                return doubleValue;
+            case CHAR_LITERALS:
+                return charValue;
+            case BOOLEAN_LITERALS:
+                return booleanValue;
+            default:
+                return stringValue;
+        }
     }
     public TokenType getTokenType() {  // Add this getter
         return tokenType;
@@ -9,6 +9,7 @@ public class NewArrayExpr extends Expr{
     private final List<Expr> dimensions;
 
     public NewArrayExpr(Token type, List<Expr> dimensions) {
+        super(Expr.NEW_ARRAY);
         this.type = type;
         this.dimensions = dimensions;
     }
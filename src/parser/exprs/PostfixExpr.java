@@ -8,6 +8,7 @@ public class PostfixExpr extends Expr{
     private final Token operator;
     
     public PostfixExpr(Expr left, Token operator) {
+        super(Expr.POSTFIX);
         this.left = left;
         this.operator = operator;
     }
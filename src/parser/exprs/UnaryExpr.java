@@ -8,6 +8,7 @@ public class UnaryExpr extends Expr{
     private final Token operator;
 
     public UnaryExpr (Token operator, Expr right){
+        super(Expr.UNARY);
         this.right = right;
         this.operator = operator;
     }
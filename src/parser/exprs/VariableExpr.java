@@ -4,12 +4,42 @@ import parser.Expr;
 
 public class VariableExpr extends Expr{
     private final String name;
+    private final int symbol;
+    // binding found by the Resolver, -1 until it has run or when the name is not declared
+    private int depth = -1;
+    private int slot = -1;
 
-    public VariableExpr(String name){
+    public VariableExpr(String name, int symbol){
+        super(Expr.VARIABLE);
         this.name = name;
+        this.symbol = symbol;
     }
 
     public String getVar(){
         return name;
     }
+
+    // id from the lexer's SymbolPool, equal names share an id
+    public int getSymbol(){
+        return symbol;
+    }
+
+    public void resolve(int depth, int slot){
+        this.depth = depth;
+        this.slot = slot;
+    }
+
+    public boolean isResolved(){
+        return depth >= 0;
+    }
+
+    // scope depth of the declaration this name refers to
+    public int getDepth(){
+        return depth;
+    }
+
+    // position of that declaration within its scope
+    public int getSlot(){
+        return slot;
+    }
 }
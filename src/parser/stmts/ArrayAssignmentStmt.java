@@ -11,6 +11,7 @@ public class ArrayAssignmentStmt extends Stmt {
     private final Expr value;
 
     public ArrayAssignmentStmt(Token arrayName, List<Expr> indices, Expr value){
+        super(Stmt.ARRAY_ASSIGNMENT);
         this.arrayName = arrayName;
         this.indices = indices;
         this.value = value;
@@ -7,6 +7,7 @@ public class BlockStmt extends Stmt{
     private final List<Stmt> statements;
 
     public BlockStmt(List<Stmt> statements){
+        super(Stmt.BLOCK);
         this.statements = statements;
     }
 
@@ -0,0 +1,18 @@
+package parser.stmts;
+
+import parser.Stmt;
+import parser.SyntaxError;
+
+// stands in for a statement that failed to parse in recovery mode, so the rest of the tree keeps its shape
+public class ErrorStmt extends Stmt{
+    private final SyntaxError error;
+
+    public ErrorStmt(SyntaxError error){
+        super(Stmt.ERROR);
+        this.error = error;
+    }
+
+    public SyntaxError getError(){
+        return error;
+    }
+}
@@ -7,6 +7,7 @@ public class ExprStmt extends Stmt{
     private final Expr expr;
 
     public ExprStmt(Expr expr){
+        super(Stmt.EXPR);
         this.expr = expr;
     }
 
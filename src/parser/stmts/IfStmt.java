@@ -9,6 +9,7 @@ public class IfStmt extends Stmt {
     private final Stmt elseBranch;
 
     public IfStmt(Expr condition, Stmt thenBranch, Stmt elseBranch) {
+        super(Stmt.IF);
         this.condition = condition;
         this.thenBranch = thenBranch;
         this.elseBranch = elseBranch;
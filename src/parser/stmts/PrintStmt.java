@@ -7,6 +7,7 @@ public class PrintStmt extends Stmt{
     private final Expr expr;
 
     public PrintStmt(Expr expr){
+        super(Stmt.PRINT);
         this.expr = expr;
     }
 
@@ -12,6 +12,7 @@ public class VarStmt extends Stmt{
     private int dimensions;
 
     public VarStmt(Token type, Token name, Expr initializer, boolean isArray, int dimensions){
+        super(Stmt.VAR);
         this.type = type;
         this.name = name;
         this.initializer = initializer;
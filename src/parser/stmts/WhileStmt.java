@@ -8,6 +8,7 @@ public class WhileStmt extends Stmt {
     private final Stmt body;
 
     public WhileStmt(Expr condition, Stmt body) {
+        super(Stmt.WHILE);
         this.condition = condition;
         this.body = body;
     }
@@ -4,12 +4,23 @@ import codegen.*;
 import java.util.List;
 import lexer.*;
 import parser.*;
+import parser.exprs.*;
+import parser.stmts.*;
 import transpiler.*;
 
 public class AnalyzerTests {
     public static void main(String[] args) {
         testValidExpression();
         testInvalidBinaryOperands();
+        testArrayDimensionMismatch();
+        testShadowingEndsWithBlock();
+        testVariablesResolvedToSlots();
+        testTypesKeptOnNodes();
+        testHandBuiltTokens();
+        testCompoundAssignment();
+        testCompoundAssignmentNeedsNumbers();
+        testAstAnalyzerMatchesTree();
+        testAstAnalyzerDeepNesting();
     }
     //implement separate declerations
     public static void testValidExpression(){
@@ -22,6 +33,131 @@ public class AnalyzerTests {
         analyzeAndExpectFailure(code);
     }
 
+    public static void testArrayDimensionMismatch() {
+        String code = "int[] a = new int[2]; a = new int[3][2];";
+        analyzeAndExpectFailure(code);
+    }
+
+    public static void testShadowingEndsWithBlock() {
+        String code = "int x = 1; { boolean x = true; x = false; } x = 2;";
+        analyzeAndExpectSuccess(code);
+    }
+
+    public static void testVariablesResolvedToSlots() {
+        String code = "int a = 1; int b = 2; { int a = 3; print(a + b); }";
+        BlockStmt block = (BlockStmt) runAnalyzer(code).get(2);
+        BinaryExpr sum = (BinaryExpr) ((PrintStmt) block.getStatements().get(1)).getExpr();
+        VariableExpr a = (VariableExpr) sum.getLeft();
+        VariableExpr b = (VariableExpr) sum.getRight();
+        if (a.getDepth() == 1 && a.getSlot() == 0 && b.getDepth() == 0 && b.getSlot() == 1) {
+            System.out.println("✔ Test passed: variables resolved to (depth, slot)");
+        } else {
+            System.out.println("❌ Test failed: a at (" + a.getDepth() + ", " + a.getSlot() + "), b at (" + b.getDepth() + ", " + b.getSlot() + ")");
+        }
+    }
+
+    public static void testTypesKeptOnNodes() {
+        String code = "float f = 1.5f; print(f * 2 < 4);";
+        List<Stmt> statements = new Parser(new Lexer(code).tokenizeToBuffer()).parse();
+        Analyzer analyzer = new Analyzer();
+        analyzer.analyze(statements);
+        BinaryExpr comparison = (BinaryExpr) ((PrintStmt) statements.get(1)).getExpr();
+        BinaryExpr product = (BinaryExpr) comparison.getLeft();
+        Type comparisonType = analyzer.typeOf(comparison);
+        Type productType = analyzer.typeOf(product);
+        Type twoType = analyzer.typeOf(product.getRight());
+        if (comparisonType == Type.BOOLEAN && productType == Type.FLOAT && twoType == Type.INT) {
+            System.out.println("✔ Test passed: inferred types kept by the analyzer");
+        } else {
+            System.out.println("❌ Test failed: got " + comparisonType + ", " + productType + ", " + twoType);
+        }
+    }
+
+    // tokens made with new Token(type, text) have no symbol id, the parser has to give them one
+    public static void testHandBuiltTokens() {
+        List<Token> tokens = List.of(
+                new Token(TokenType.INT, "int"), new Token(TokenType.IDENTIFIER, "x"), new Token(TokenType.ASSIGN, "="),
+                new Token(TokenType.NUMBER_LITERALS, "1"), new Token(TokenType.SEMICOLON, ";"),
+                new Token(TokenType.INT, "int"), new Token(TokenType.IDENTIFIER, "y"), new Token(TokenType.ASSIGN, "="),
+                new Token(TokenType.NUMBER_LITERALS, "2"), new Token(TokenType.SEMICOLON, ";"));
+        try {
+            new Analyzer().analyze(new Parser(tokens).parse());
+            new Analyzer().analyze(new Parser(tokens.iterator()).parse());
+            System.out.println("✔ Test passed: hand-built tokens analyzed");
+        } catch (RuntimeException e) {
+            System.out.println("❌ Test failed: hand-built tokens: " + e.getMessage());
+        }
+    }
+
+    public static void testCompoundAssignment() {
+        String code = "int x = 1; x += 2; x *= x; x -= 3;";
+        analyzeAndExpectSuccess(code);
+    }
+
+    public static void testCompoundAssignmentNeedsNumbers() {
+        String code = "boolean b = true; b += false;";
+        analyzeAndExpectFailure(code);
+    }
+
+    public static void testAstAnalyzerMatchesTree() {
+        String[] programs = {
+                "int x = 1; { boolean x = true; x = false; } x += 2; while (x < 10) x++; print(-x);",
+                "float[] a = new float[3]; float f = 1.5f; if (f) { print(a); } else print(!true); char c = 'c'; if (c) print(c);",
+                "int[] a = new int[2]; a = new int[3][2];",
+                "boolean b = true; b += false;",
+                "int x = 1; int x = 2;",
+                "print((y + 1));",
+                "float[][] arr = {{1.0f, 2.2f}, {0.7f, 6.6f}};",
+        };
+        for (String code : programs) {
+            String tree = analysisError(() -> new Analyzer().analyze(new Parser(new Lexer(code).tokenizeToBuffer()).parse()));
+            Ast ast = new Parser(new Lexer(code).tokenizeToBuffer()).parseAst();
+            String flat = analysisError(() -> new AstAnalyzer(ast).analyze());
+            if (String.valueOf(tree).equals(String.valueOf(flat))) {
+                System.out.println("✔ Test passed: Ast analysis agrees: " + flat);
+            } else {
+                System.out.println("❌ Test failed: " + code + " tree: " + tree + " Ast: " + flat);
+            }
+        }
+    }
+
+    // the Ast path, parse to generate, needs no recursion at any depth
+    public static void testAstAnalyzerDeepNesting() {
+        int depth = 50000;
+        String[][] programs = {
+                {"parentheses", "int x = " + "(".repeat(depth) + "1" + ")".repeat(depth) + ";"},
+                {"blocks", "int x = 1; " + "{".repeat(depth) + "x += 1;" + "}".repeat(depth)},
+                {"unary minus", "int x = " + "- ".repeat(depth) + "1;"},
+        };
+        for (String[] program : programs) {
+            try {
+                Ast ast = new Parser(new Lexer(program[1]).tokenizeToBuffer()).parseAst();
+                AstAnalyzer analyzer = new AstAnalyzer(ast);
+                analyzer.analyze();
+                new CodeGenerator().generate(ast);
+                int x = ast.firstChild(Ast.PROGRAM);
+                if (analyzer.typeOf(ast.firstChild(x)) != Type.INT) {
+                    System.out.println("❌ Test failed: deep " + program[0] + ": x initialized with " + analyzer.typeOf(ast.firstChild(x)));
+                    continue;
+                }
+            } catch (StackOverflowError e) {
+                System.out.println("❌ Test failed: deep " + program[0] + " overflowed the stack");
+                continue;
+            }
+            System.out.println("✔ Test passed: " + depth + " levels of " + program[0] + " analyzed without recursion");
+        }
+    }
+
+    // message of the error the analysis throws, null when it succeeds
+    private static String analysisError(Runnable analysis) {
+        try {
+            analysis.run();
+            return null;
+        } catch (RuntimeException e) {
+            return e.getMessage();
+        }
+    }
+
     private static void analyzeAndExpectSuccess(String code){
         try {
             List<Stmt> statements = runAnalyzer(code);
@@ -0,0 +1,140 @@
+package tests;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import lexer.Token;
+import lexer.TokenType;
+import parser.Expr;
+import parser.exprs.*;
+
+// times one dispatch per expression node, for each node kind: the old instanceof chain against
+// the switch on Expr.kind() the analyzer and code generator use now
+public class DispatchBenchmark {
+    private static final int NODES = 200_000;
+    private static final int ROUNDS = 10;
+
+    public static void main(String[] args) {
+        Expr[] samples = samples();
+        String[] names = {"Literal", "Variable", "Assignment", "Binary", "Unary", "ArrayLiteral", "NewArray", "Grouping", "Postfix"};
+
+        // warm both paths up with every kind mixed, so neither is compiled for one kind only
+        Random random = new Random(42);
+        Expr[] mixed = new Expr[NODES];
+        for (int i = 0; i < NODES; i++) {
+            mixed[i] = samples[random.nextInt(samples.length)];
+        }
+        for (int round = 0; round < ROUNDS; round++) {
+            instanceofChain(mixed);
+            kindSwitch(mixed);
+        }
+
+        System.out.println("Dispatch cost per node, in the order of the old instanceof chain:");
+        for (int k = 0; k < samples.length; k++) {
+            Expr[] nodes = new Expr[NODES];
+            for (int i = 0; i < NODES; i++) {
+                nodes[i] = samples[k];
+            }
+            long chainTime = Long.MAX_VALUE;
+            long switchTime = Long.MAX_VALUE;
+            for (int round = 0; round < ROUNDS; round++) {
+                long begin = System.nanoTime();
+                int chainSum = instanceofChain(nodes);
+                chainTime = Math.min(chainTime, System.nanoTime() - begin);
+
+                begin = System.nanoTime();
+                int switchSum = kindSwitch(nodes);
+                switchTime = Math.min(switchTime, System.nanoTime() - begin);
+
+                if (chainSum != switchSum) {
+                    System.out.println("❌ Dispatch results differ for " + names[k]);
+                    return;
+                }
+            }
+            System.out.printf("%-13s instanceof %.2f ns, kind switch %.2f ns%n", names[k],
+                    (double) chainTime / NODES, (double) switchTime / NODES);
+        }
+    }
+
+    private static Expr[] samples() {
+        Expr one = new LiteralExpr(1);
+        Expr x = new VariableExpr("x", 0);
+        List<Expr> elements = new ArrayList<>();
+        elements.add(one);
+        List<Expr> dimensions = new ArrayList<>();
+        dimensions.add(one);
+        return new Expr[] {
+            one,
+            x,
+            new AssignmentExpr(new Token(TokenType.IDENTIFIER, "x"), Token.fixed(TokenType.ASSIGN), one),
+            new BinaryExpr(x, Token.fixed(TokenType.PLUS), one),
+            new UnaryExpr(Token.fixed(TokenType.MINUS), one),
+            new ArrayLiteralExpr(elements),
+            new NewArrayExpr(Token.fixed(TokenType.INT), dimensions),
+            new GroupingExpr(one),
+            new PostfixExpr(x, Token.fixed(TokenType.INCREMENT)),
+        };
+    }
+
+    private static int instanceofChain(Expr[] nodes) {
+        int sum = 0;
+        for (Expr expr : nodes) {
+            if (expr instanceof LiteralExpr) {
+                sum += 1;
+            } else if (expr instanceof VariableExpr) {
+                sum += 2;
+            } else if (expr instanceof AssignmentExpr) {
+                sum += 3;
+            } else if (expr instanceof BinaryExpr) {
+                sum += 4;
+            } else if (expr instanceof UnaryExpr) {
+                sum += 5;
+            } else if (expr instanceof ArrayLiteralExpr) {
+                sum += 6;
+            } else if (expr instanceof NewArrayExpr) {
+                sum += 7;
+            } else if (expr instanceof GroupingExpr) {
+                sum += 8;
+            } else if (expr instanceof PostfixExpr) {
+                sum += 9;
+            }
+        }
+        return sum;
+    }
+
+    private static int kindSwitch(Expr[] nodes) {
+        int sum = 0;
+        for (Expr expr : nodes) {
+            switch (expr.kind()) {
+                case Expr.LITERAL:
+                    sum += 1;
+                    break;
+                case Expr.VARIABLE:
+                    sum += 2;
+                    break;
+                case Expr.ASSIGNMENT:
+                    sum += 3;
+                    break;
+                case Expr.BINARY:
+                    sum += 4;
+                    break;
+                case Expr.UNARY:
+                    sum += 5;
+                    break;
+                case Expr.ARRAY_LITERAL:
+                    sum += 6;
+                    break;
+                case Expr.NEW_ARRAY:
+                    sum += 7;
+                    break;
+                case Expr.GROUPING:
+                    sum += 8;
+                    break;
+                case Expr.POSTFIX:
+                    sum += 9;
+                    break;
+            }
+        }
+        return sum;
+    }
+}
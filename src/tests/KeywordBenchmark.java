@@ -0,0 +1,85 @@
+package tests;
+
+import java.util.HashMap;
+import java.util.Map;
+import lexer.Keywords;
+import lexer.TokenType;
+
+// compares the old substring + HashMap keyword lookup with Keywords.classify on keyword heavy input
+public class KeywordBenchmark {
+    private static final String[] WORDS = {
+        "int", "x", "if", "while", "float", "count", "else", "true", "false", "print",
+        "var", "new", "boolean", "println", "char", "return", "index", "for", "void", "value"
+    };
+    private static final int ROUNDS = 10;
+    private static final int REPEAT = 50_000;
+
+    private static final Map<String, TokenType> keywordMap = new HashMap<>();
+
+    static {
+        keywordMap.put("if", TokenType.IF);
+        keywordMap.put("else", TokenType.ELSE);
+        keywordMap.put("while", TokenType.WHILE);
+        keywordMap.put("for", TokenType.FOR);
+        keywordMap.put("return", TokenType.RETURN);
+        keywordMap.put("int", TokenType.INT);
+        keywordMap.put("float", TokenType.FLOAT);
+        keywordMap.put("boolean", TokenType.BOOLEAN);
+        keywordMap.put("char", TokenType.CHAR);
+        keywordMap.put("void", TokenType.VOID);
+        keywordMap.put("true", TokenType.BOOLEAN_LITERALS);
+        keywordMap.put("false", TokenType.BOOLEAN_LITERALS);
+        keywordMap.put("print", TokenType.PRINT);
+        keywordMap.put("println", TokenType.PRINTLN);
+        keywordMap.put("var", TokenType.VAR);
+        keywordMap.put("new", TokenType.NEW);
+    }
+
+    public static void main(String[] args) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < REPEAT; i++) {
+            text.append(WORDS[i % WORDS.length]).append(' ');
+        }
+        String source = text.toString();
+        int[] starts = new int[REPEAT];
+        int[] lengths = new int[REPEAT];
+        for (int i = 0, pos = 0; i < REPEAT; i++) {
+            starts[i] = pos;
+            lengths[i] = WORDS[i % WORDS.length].length();
+            pos += lengths[i] + 1;
+        }
+
+        long mapTime = Long.MAX_VALUE;
+        long switchTime = Long.MAX_VALUE;
+        int mapKeywords = 0;
+        int switchKeywords = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            long begin = System.nanoTime();
+            mapKeywords = 0;
+            for (int i = 0; i < REPEAT; i++) {
+                String lexeme = source.substring(starts[i], starts[i] + lengths[i]);
+                if (keywordMap.getOrDefault(lexeme, TokenType.IDENTIFIER) != TokenType.IDENTIFIER) {
+                    mapKeywords++;
+                }
+            }
+            mapTime = Math.min(mapTime, System.nanoTime() - begin);
+
+            begin = System.nanoTime();
+            switchKeywords = 0;
+            for (int i = 0; i < REPEAT; i++) {
+                if (Keywords.classify(source, starts[i], lengths[i]) != TokenType.IDENTIFIER) {
+                    switchKeywords++;
+                }
+            }
+            switchTime = Math.min(switchTime, System.nanoTime() - begin);
+        }
+
+        if (mapKeywords != switchKeywords) {
+            System.out.println("❌ Keyword counts differ: map " + mapKeywords + ", switch " + switchKeywords);
+            return;
+        }
+        System.out.println("Identifiers: " + REPEAT + ", keywords: " + switchKeywords);
+        System.out.printf("HashMap lookup:  %.2f ns/identifier%n", (double) mapTime / REPEAT);
+        System.out.printf("Keywords switch: %.2f ns/identifier%n", (double) switchTime / REPEAT);
+    }
+}
@@ -0,0 +1,237 @@
+package tests;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import lexer.*;
+
+public class LexerTests {
+    private static final String SAMPLE = "int[] arr = {1, 2, 3, 4};\n"
+            + "char c = '\\n'; float f = 1.5f;\n"
+            + "/* block\n comment */ if (arr[0] <= 2 && !done) { x += 1; } // trailing\n"
+            + "print(\"a \\\"quoted\\\" string\");";
+
+    public static void main(String[] args) throws Exception {
+        testStreamMatchesTokenize();
+        testMappedFileMatchesString();
+        testBufferMatchesTokenize();
+        testIncrementalMatchesFullRelex();
+        testParallelMatchesSequential();
+        testUtf8BytesMatchString();
+        testIncrementalUtf8Edits();
+        testLineTable();
+        testNumberLiterals();
+    }
+
+    public static void testStreamMatchesTokenize(){
+        List<Token> streamed = new ArrayList<>();
+        TokenStream stream = new Lexer(SAMPLE).stream();
+        while (stream.hasNext()) {
+            streamed.add(stream.next());
+        }
+        expectSameTokens("stream vs tokenize", tokenize(SAMPLE), streamed);
+    }
+
+    public static void testMappedFileMatchesString() throws Exception {
+        Path file = Files.createTempFile("lexer", ".java");
+        try {
+            Files.write(file, SAMPLE.getBytes(StandardCharsets.ISO_8859_1));
+            Lexer lexer = new Lexer(MappedSource.map(file));
+            lexer.tokenize();
+            expectSameTokens("mapped file vs string", tokenize(SAMPLE), lexer.getTokens());
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    public static void testBufferMatchesTokenize(){
+        // enough tokens to spill over several buffer chunks
+        String code = SAMPLE.repeat(500);
+        TokenBuffer buffer = new Lexer(code).tokenizeToBuffer();
+        List<Token> packed = new ArrayList<>();
+        for (int i = 0; i < buffer.size(); i++) {
+            packed.add(buffer.token(i));
+        }
+        expectSameTokens("token buffer vs tokenize", tokenize(code), packed);
+    }
+
+    public static void testIncrementalMatchesFullRelex(){
+        String code = SAMPLE + "\nint after = 1; int more = 2; print(after + more);";
+        // offset, removed length, inserted text: plain edits, then edits that open, close or
+        // land inside comments and string literals
+        Object[][] edits = {
+            {4, 0, "x"},
+            {code.indexOf("arr"), 3, "values"},
+            {code.indexOf("block"), 0, "*/ int y = 2; /*"},
+            {code.indexOf("/* block"), 2, ""},
+            {code.indexOf("comment */"), 0, "still "},
+            {code.indexOf("quoted"), 0, "\" + 1 + \""},
+            {code.indexOf("\"a "), 1, ""},
+            {code.indexOf("1.5f"), 4, "2.25d"},
+            {code.indexOf("// trailing"), 0, "/*"},
+            {code.length(), 0, " extra"},
+            {0, 0, "/* lead */ "},
+        };
+        for (Object[] edit : edits) {
+            int offset = (Integer) edit[0];
+            int removed = (Integer) edit[1];
+            String inserted = (String) edit[2];
+            String edited = code.substring(0, offset) + inserted + code.substring(offset + removed);
+
+            TokenEdit result = IncrementalLexer.relex(new Lexer(code).tokenizeToBuffer(), offset, removed, inserted);
+            List<Token> incremental = new ArrayList<>();
+            for (int i = 0; i < result.getTokens().size(); i++) {
+                incremental.add(result.getTokens().token(i));
+            }
+            expectSameTokens("incremental edit at " + offset, tokenize(edited), incremental);
+        }
+    }
+
+    public static void testParallelMatchesSequential(){
+        StringBuilder code = new StringBuilder();
+        for (int i = 0; i < 300; i++) {
+            code.append(SAMPLE).append(" /* spans\n ").append(i).append(" lines */ \"long ").append(i).append(" string\" v").append(i % 17).append(";\n");
+        }
+        String source = code.toString();
+        TokenBuffer sequential = new Lexer(source).tokenizeToBuffer();
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            // odd chunk sizes so boundaries land inside strings, comments and tokens
+            for (int chunkSize : new int[] {37, 512, 4099}) {
+                TokenBuffer parallel = ParallelLexer.tokenize(source, new SymbolPool(), pool, chunkSize);
+                expectSameBuffer("parallel lexing, chunks of " + chunkSize, sequential, parallel);
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    public static void testUtf8BytesMatchString(){
+        String code = SAMPLE + "\nint größe = 1; größe += größe; print(\"naïve \\\"café\\\" ✓\"); char é = 'é';"
+                + " // commentaire déjà vu\n/* ☃ */ var 変数 = größe;";
+        Lexer lexer = new Lexer(new Utf8Source(code.getBytes(StandardCharsets.UTF_8)));
+        lexer.tokenize();
+        expectSameTokens("utf-8 bytes vs string", tokenize(code), lexer.getTokens());
+    }
+
+    // edit offsets into a Utf8Source are byte offsets, the edited buffer must match lexing the edited bytes
+    public static void testIncrementalUtf8Edits(){
+        String code = "int café = 1; café += 2; print(\"naïve\"); var 変数 = café;";
+        byte[] bytes = code.getBytes(StandardCharsets.UTF_8);
+        Object[][] edits = {
+            {utf8Offset(code, code.indexOf("= 1")), 0, "é"},
+            {utf8Offset(code, code.indexOf("café +=")), "café".getBytes(StandardCharsets.UTF_8).length, "größe"},
+            {utf8Offset(code, code.indexOf("naïve")), 0, "très "},
+            {utf8Offset(code, code.indexOf("変数")), "変数".getBytes(StandardCharsets.UTF_8).length, "x"},
+        };
+        for (Object[] edit : edits) {
+            int offset = (Integer) edit[0];
+            int removed = (Integer) edit[1];
+            String inserted = (String) edit[2];
+            byte[] insertedBytes = inserted.getBytes(StandardCharsets.UTF_8);
+            byte[] edited = new byte[bytes.length - removed + insertedBytes.length];
+            System.arraycopy(bytes, 0, edited, 0, offset);
+            System.arraycopy(insertedBytes, 0, edited, offset, insertedBytes.length);
+            System.arraycopy(bytes, offset + removed, edited, offset + insertedBytes.length, bytes.length - offset - removed);
+
+            TokenBuffer before = new Lexer(new Utf8Source(bytes)).tokenizeToBuffer();
+            TokenBuffer after = IncrementalLexer.relex(before, offset, removed, inserted).getTokens();
+            expectSameBuffer("utf-8 incremental edit at byte " + offset,
+                    new Lexer(new Utf8Source(edited), after.getSymbols()).tokenizeToBuffer(), after);
+            List<Token> incremental = new ArrayList<>();
+            for (int i = 0; i < after.size(); i++) {
+                incremental.add(after.token(i));
+            }
+            expectSameTokens("utf-8 incremental edit at byte " + offset + " vs string",
+                    tokenize(new String(edited, StandardCharsets.UTF_8)), incremental);
+        }
+        try {
+            IncrementalLexer.relex(new Lexer(new Utf8Source(bytes)).tokenizeToBuffer(), utf8Offset(code, 7) + 1, 0, "x");
+            System.out.println("❌ Test failed: edit inside a UTF-8 sequence was accepted");
+        } catch (IllegalArgumentException e) {
+            System.out.println("✔ Test passed: edit inside a UTF-8 sequence rejected");
+        }
+    }
+
+    private static int utf8Offset(String code, int charIndex){
+        return code.substring(0, charIndex).getBytes(StandardCharsets.UTF_8).length;
+    }
+
+    public static void testLineTable(){
+        String code = SAMPLE + "\n\nlast";
+        LineTable lines = new Lexer(code).getLines();
+        int line = 1;
+        int col = 1;
+        for (int offset = 0; offset < code.length(); offset++) {
+            if (lines.line(offset) != line || lines.column(offset) != col) {
+                System.out.println("❌ Test failed: line table: offset " + offset + " expected " + line + ":" + col
+                        + " but got " + lines.line(offset) + ":" + lines.column(offset));
+                return;
+            }
+            if (code.charAt(offset) == '\n') {
+                line++;
+                col = 1;
+            } else {
+                col++;
+            }
+        }
+        System.out.println("✔ Test passed: line table");
+    }
+
+    public static void testNumberLiterals(){
+        String[] literals = {"0", "42", "9223372036854775807", "1.5", "0.1", "3.25f", "7d", "2.718281828459045", "0.30000000000000004", "123456789012345678.9"};
+        Lexer lexer = new Lexer(String.join(" ", literals));
+        for (String literal : literals) {
+            Token token = lexer.nextToken();
+            boolean matches = token.getType() == TokenType.NUMBER_LITERALS
+                    ? token.getLong() == Long.parseLong(literal)
+                    : token.getDouble() == Double.parseDouble(literal);
+            if (!matches) {
+                System.out.println("❌ Test failed: number literals: " + literal + " scanned as " + token.getType() + " " + token.getLong() + " / " + token.getDouble());
+                return;
+            }
+        }
+        System.out.println("✔ Test passed: number literals");
+    }
+
+    private static void expectSameBuffer(String name, TokenBuffer expected, TokenBuffer actual){
+        if (expected.size() != actual.size()) {
+            System.out.println("❌ Test failed: " + name + ": expected " + expected.size() + " tokens, got " + actual.size());
+            return;
+        }
+        for (int i = 0; i < expected.size(); i++) {
+            if (expected.type(i) != actual.type(i) || expected.offset(i) != actual.offset(i)
+                    || expected.length(i) != actual.length(i) || expected.symbol(i) != actual.symbol(i)
+                    || expected.literal(i) != actual.literal(i)) {
+                System.out.println("❌ Test failed: " + name + ": token " + i + " expected " + expected.token(i) + " but got " + actual.token(i));
+                return;
+            }
+        }
+        System.out.println("✔ Test passed: " + name);
+    }
+
+    private static List<Token> tokenize(String code){
+        Lexer lexer = new Lexer(code);
+        lexer.tokenize();
+        return lexer.getTokens();
+    }
+
+    private static void expectSameTokens(String name, List<Token> expected, List<Token> actual){
+        if (expected.size() != actual.size()) {
+            System.out.println("❌ Test failed: " + name + ": expected " + expected.size() + " tokens, got " + actual.size());
+            return;
+        }
+        for (int i = 0; i < expected.size(); i++) {
+            Token e = expected.get(i);
+            Token a = actual.get(i);
+            if (e.getType() != a.getType() || !e.getValue().equals(a.getValue())) {
+                System.out.println("❌ Test failed: " + name + ": token " + i + " expected " + e + " but got " + a);
+                return;
+            }
+        }
+        System.out.println("✔ Test passed: " + name);
+    }
+}
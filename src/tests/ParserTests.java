@@ -0,0 +1,330 @@
+package tests;
+
+import codegen.CodeGenerator;
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import lexer.*;
+import parser.*;
+import parser.exprs.*;
+import parser.stmts.*;
+
+public class ParserTests {
+    public static void main(String[] args) {
+        testRecoveryReportsEveryError();
+        testRecoveryKeepsValidStatements();
+        testStrictModeStopsAtFirstError();
+        testOperatorPrecedence();
+        testStreamingMatchesBuffer();
+        testParallelMatchesSequential();
+        testDeepNesting();
+        testAstMatchesTree();
+        testSharedSubtrees();
+        testParseTrace();
+        testListInputHasNoPositions();
+    }
+
+    public static void testRecoveryReportsEveryError(){
+        String code = "int x = ;\n"
+                + "int y = 2;\n"
+                + "if (y > 1) { y = ; print(y); }\n"
+                + "y = (y;\n"
+                + "}\n"
+                + "int z = 3";
+        Lexer lexer = new Lexer(code);
+        Parser parser = new Parser(lexer.tokenizeToBuffer());
+        parser.recoverErrors();
+        parser.parse();
+
+        int[] expectedLines = {1, 3, 4, 5, 6};
+        List<SyntaxError> errors = parser.getErrors();
+        if (errors.size() != expectedLines.length) {
+            System.out.println("❌ Test failed: recovery: expected " + expectedLines.length + " errors, got " + errors.size() + " " + messages(errors));
+            return;
+        }
+        for (int i = 0; i < errors.size(); i++) {
+            int line = lexer.getLines().line(errors.get(i).getOffset());
+            if (line != expectedLines[i]) {
+                System.out.println("❌ Test failed: recovery: error " + i + " (" + errors.get(i).getMessage() + ") on line " + line + ", expected " + expectedLines[i]);
+                return;
+            }
+        }
+        System.out.println("✔ Test passed: recovery reports every error " + messages(errors));
+    }
+
+    public static void testRecoveryKeepsValidStatements(){
+        Parser parser = new Parser(new Lexer("int a = 1; int b = ; { int c = a; c = ; print(c); } a = 2;").tokenizeToBuffer());
+        parser.recoverErrors();
+        List<Stmt> statements = parser.parse();
+
+        boolean shape = statements.size() == 4
+                && statements.get(0) instanceof VarStmt
+                && statements.get(1) instanceof ErrorStmt
+                && statements.get(2) instanceof BlockStmt
+                && statements.get(3) instanceof ExprStmt;
+        List<Stmt> block = shape ? ((BlockStmt) statements.get(2)).getStatements() : List.of();
+        shape = shape && block.size() == 3
+                && block.get(0) instanceof VarStmt
+                && block.get(1) instanceof ErrorStmt
+                && block.get(2) instanceof PrintStmt;
+        if (shape && parser.getErrors().size() == 2) {
+            System.out.println("✔ Test passed: recovery keeps valid statements");
+        } else {
+            System.out.println("❌ Test failed: recovery keeps valid statements: " + statements + " " + messages(parser.getErrors()));
+        }
+    }
+
+    public static void testStrictModeStopsAtFirstError(){
+        try {
+            new Parser(new Lexer("int x = ; int y = ;").tokenizeToBuffer()).parse();
+            System.out.println("❌ Test failed: strict mode: expected an error, but none occurred.");
+        } catch (SyntaxError e) {
+            System.out.println("✔ Test passed (caught error): " + e.getMessage());
+        }
+    }
+
+    public static void testOperatorPrecedence(){
+        String[][] cases = {
+            {"x = a || b && c < d + e * f % g;", "x = (a || (b && (c < (d + ((e * f) % g)))));"},
+            {"x = a - b - c;", "x = ((a - b) - c);"},
+            {"x = y = -a * b++;", "x = y = ((-a) * b++);"},
+            {"x += a & b | c;", "x += ((a & b) | c);"},
+        };
+        for (String[] c : cases) {
+            List<Stmt> statements = new Parser(new Lexer(c[0]).tokenizeToBuffer()).parse();
+            String js = new CodeGenerator().generate(statements).trim();
+            if (!js.equals(c[1])) {
+                System.out.println("❌ Test failed: precedence of " + c[0] + ": expected " + c[1] + " but got " + js);
+                return;
+            }
+        }
+        System.out.println("✔ Test passed: operator precedence");
+    }
+
+    public static void testStreamingMatchesBuffer(){
+        String code = "int x = 1; { int y = x + 2; x = y; } while (x < 10) { x += 1; } if (x >= 2 && !false) print(x); else { x = 0; }";
+        String buffered = new CodeGenerator().generate(new Parser(new Lexer(code).tokenizeToBuffer()).parse());
+        String streamed = new CodeGenerator().generate(new Parser(new Lexer(code).stream()).parse());
+
+        String broken = "int x = ; { x = ; } int y = (1;\nint z = 6\nprint(x);";
+        Parser recovering = new Parser(new Lexer(broken).stream());
+        recovering.recoverErrors();
+        recovering.parse();
+        Parser recoveringBuffered = new Parser(new Lexer(broken).tokenizeToBuffer());
+        recoveringBuffered.recoverErrors();
+        recoveringBuffered.parse();
+
+        if (!buffered.equals(streamed)) {
+            System.out.println("❌ Test failed: streaming parse: expected " + buffered + " but got " + streamed);
+        } else if (recovering.getErrors().size() != 4) {
+            System.out.println("❌ Test failed: streaming recovery: expected 4 errors, got " + messages(recovering.getErrors()));
+        } else if (!positions(recovering.getErrors()).equals(positions(recoveringBuffered.getErrors()))) {
+            System.out.println("❌ Test failed: streaming error offsets: expected " + positions(recoveringBuffered.getErrors()) + " but got " + positions(recovering.getErrors()));
+        } else {
+            System.out.println("✔ Test passed: streaming parse matches buffered parse");
+        }
+    }
+
+    public static void testParallelMatchesSequential(){
+        StringBuilder code = new StringBuilder();
+        for (int i = 0; i < 500; i++) {
+            code.append("int v").append(i).append(" = ").append(i).append(" * 2;\n");
+            code.append("if (v").append(i).append(" > 3) { v").append(i).append(" -= 1; } else { print(v").append(i).append("); }\n");
+            code.append("if (v").append(i).append(" < 2) v").append(i).append("++; else v").append(i).append("--;\n");
+            code.append("while (v").append(i).append(" > 0) { { v").append(i).append(" = v").append(i).append(" / 2; } }\n");
+        }
+        TokenBuffer tokens = new Lexer(code.toString()).tokenizeToBuffer();
+        String sequential = new CodeGenerator().generate(new Parser(tokens).parse());
+        String parallel = new CodeGenerator().generate(new ParallelParser(tokens).parse(ForkJoinPool.commonPool(), 16));
+
+        // errors late in the input come out of the sequential fallback exactly as Parser reports them
+        code.append("int broken = ;\n}\nint after = 1;\n");
+        TokenBuffer broken = new Lexer(code.toString()).tokenizeToBuffer();
+        Parser strict = new Parser(broken);
+        String expectedError = null;
+        try {
+            strict.parse();
+        } catch (SyntaxError e) {
+            expectedError = e.getMessage() + "@" + e.getOffset();
+        }
+        String actualError = null;
+        try {
+            new ParallelParser(broken).parse(ForkJoinPool.commonPool(), 16);
+        } catch (SyntaxError e) {
+            actualError = e.getMessage() + "@" + e.getOffset();
+        }
+        Parser recovering = new Parser(broken);
+        recovering.recoverErrors();
+        int expectedStatements = recovering.parse().size();
+        ParallelParser parallelRecovering = new ParallelParser(broken);
+        parallelRecovering.recoverErrors();
+        int actualStatements = parallelRecovering.parse(ForkJoinPool.commonPool(), 16).size();
+
+        if (!sequential.equals(parallel)) {
+            System.out.println("❌ Test failed: parallel parse differs from the sequential parse");
+        } else if (expectedError == null || !expectedError.equals(actualError)) {
+            System.out.println("❌ Test failed: parallel parse error: expected " + expectedError + " but got " + actualError);
+        } else if (actualStatements != expectedStatements || !messages(parallelRecovering.getErrors()).equals(messages(recovering.getErrors()))) {
+            System.out.println("❌ Test failed: parallel recovery: expected " + messages(recovering.getErrors()) + " but got " + messages(parallelRecovering.getErrors()));
+        } else {
+            System.out.println("✔ Test passed: parallel parse matches sequential parse");
+        }
+    }
+
+    public static void testDeepNesting(){
+        int depth = 100000;
+        String[][] shapes = {
+            {"int x = ", "(", "1", ")", ";"},
+            {"int x = ", "- ", "1", "", ";"},
+            {"int x = ", "1 + (", "1", ")", ";"},
+            {"", "{ ", "x = 1;", " }", ""},
+            {"", "if (x) while (x) ", "x = 1;", "", ""},
+            {"int[] a = ", "{", "1", "}", ";"},
+            {"int[] a = ", "new int[", "1", "]", ";"},
+        };
+        for (String[] shape : shapes) {
+            StringBuilder code = new StringBuilder(shape[0]);
+            for (int i = 0; i < depth; i++) {
+                code.append(shape[1]);
+            }
+            code.append(shape[2]);
+            for (int i = 0; i < depth; i++) {
+                code.append(shape[3]);
+            }
+            code.append(shape[4]);
+            String name = shape[1] + shape[2] + shape[3];
+            try {
+                Parser parser = new Parser(new Lexer(code.toString()).tokenizeToBuffer());
+                parser.recoverErrors();
+                List<Stmt> statements = parser.parse();
+                if (statements.size() != 1 || !parser.getErrors().isEmpty()) {
+                    System.out.println("❌ Test failed: nesting " + name + ": " + statements.size() + " statements " + messages(parser.getErrors()));
+                    return;
+                }
+            } catch (StackOverflowError e) {
+                System.out.println("❌ Test failed: nesting " + name + " overflowed the stack");
+                return;
+            }
+        }
+        System.out.println("✔ Test passed: " + depth + " levels of nesting parse without recursion");
+    }
+
+    public static void testAstMatchesTree(){
+        String code = "int x = 1; int[][] m = new int[x + 1][]; int[] a = {1, -2, 3}; var s = \"hi\";"
+                + " { x = (x + 2) * 3; x++; } while (x < 10) x += 1; if (!(x >= 2)) print(x); else { x = 0; }";
+        String tree = new CodeGenerator().generate(new Parser(new Lexer(code).tokenizeToBuffer()).parse());
+        Ast ast = new Parser(new Lexer(code).tokenizeToBuffer()).parseAst();
+        String flat = new CodeGenerator().generate(ast);
+
+        // the flat walk needs no recursion either
+        StringBuilder deep = new StringBuilder("int x = ");
+        deep.append("(".repeat(100000)).append("1").append(")".repeat(100000)).append(";");
+        Ast deepAst = new Parser(new Lexer(deep).tokenizeToBuffer()).parseAst();
+        String deepCode = new CodeGenerator().generate(deepAst);
+
+        if (!tree.equals(flat)) {
+            System.out.println("❌ Test failed: flat ast: expected " + tree + " but got " + flat);
+        } else if (ast.kind(ast.firstChild(0)) != Ast.VAR || !ast.name(ast.firstChild(0)).equals("x") || ast.childCount(0) != 7) {
+            System.out.println("❌ Test failed: flat ast shape");
+        } else if (deepAst.size() != 100003 || deepCode.length() != "let x = ;\n".length() + 200001) {
+            System.out.println("❌ Test failed: deep flat ast has " + deepAst.size() + " nodes");
+        } else {
+            System.out.println("✔ Test passed: flat ast generates the same code as the tree");
+        }
+    }
+
+    public static void testSharedSubtrees(){
+        String code = "int i = 0; int x = (i + 1) * (i + 1); { int i = 5; print(i + 1); } print(i + 1); print(2);";
+        Parser parser = new Parser(new Lexer(code).tokenizeToBuffer());
+        parser.shareSubtrees();
+        List<Stmt> statements = parser.parse();
+
+        BinaryExpr product = (BinaryExpr) ((VarStmt) statements.get(1)).getInitialzer();
+        Expr inner = ((PrintStmt) ((BlockStmt) statements.get(2)).getStatements().get(1)).getExpr();
+        Expr after = ((PrintStmt) statements.get(3)).getExpr();
+        Expr sum = ((GroupingExpr) product.getLeft()).getExpr();
+        Expr one = ((BinaryExpr) sum).getRight();
+
+        if (product.getLeft() != product.getRight()) {
+            System.out.println("❌ Test failed: shared subtrees: (i + 1) is not shared within one statement");
+        } else if (inner == sum || after == sum || inner == after) {
+            System.out.println("❌ Test failed: shared subtrees: i + 1 is shared across different bindings of i");
+        } else if (((BinaryExpr) inner).getRight() != one || ((BinaryExpr) after).getRight() != one) {
+            System.out.println("❌ Test failed: shared subtrees: the literal 1 is not shared");
+        } else {
+            System.out.println("✔ Test passed: identical subtrees are shared");
+        }
+    }
+
+    public static void testParseTrace(){
+        String code = "int x = (1 + 2); if (x > 1) { print(x); } while (x < 3) x++; int[] a = new int[x]; int[][] b = {{1}, {2, 3}};";
+        ParseTrace trace = new ParseTrace();
+        Parser parser = new Parser(new Lexer(code).tokenizeToBuffer());
+        parser.setListener(trace);
+
+        PrintStream out = System.out;
+        ByteArrayOutputStream printed = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(printed));
+        try {
+            parser.parse();
+        } finally {
+            System.setOut(out);
+        }
+
+        String counts = trace.count(ParseRule.VAR_DECLARATION) + " " + trace.count(ParseRule.IF) + " " + trace.count(ParseRule.WHILE)
+                + " " + trace.count(ParseRule.BLOCK) + " " + trace.count(ParseRule.GROUPING) + " " + trace.count(ParseRule.NEW_ARRAY)
+                + " " + trace.count(ParseRule.ARRAY_LITERAL);
+        String tokens = trace.tokens(ParseRule.VAR_DECLARATION) + " " + trace.tokens(ParseRule.PRINT) + " " + trace.tokens(ParseRule.GROUPING)
+                + " " + trace.tokens(ParseRule.NEW_ARRAY) + " " + trace.tokens(ParseRule.EXPRESSION_STATEMENT);
+        if (printed.size() != 0) {
+            System.out.println("❌ Test failed: parse trace: the parser printed " + printed);
+        } else if (!counts.equals("3 1 1 1 1 1 3")) {
+            System.out.println("❌ Test failed: parse trace: rule counts " + counts + "\n" + trace);
+        } else if (!tokens.equals("39 5 5 5 3")) {
+            System.out.println("❌ Test failed: parse trace: rule tokens " + tokens + "\n" + trace);
+        } else {
+            System.out.println("✔ Test passed: parse trace counts rules and tokens");
+        }
+    }
+
+    public static void testListInputHasNoPositions(){
+        Lexer lexer = new Lexer("int x = 1;\nint y = ;");
+        lexer.tokenize();
+        TokenBuffer buffer = TokenBuffer.of(lexer.getTokens());
+        Parser parser = new Parser(lexer.getTokens());
+        parser.recoverErrors();
+        parser.parse();
+
+        if (buffer.getSource() != null || buffer.offset(0) != -1) {
+            System.out.println("❌ Test failed: list input: expected no source and offset -1, got offset " + buffer.offset(0));
+        } else if (!positions(parser.getErrors()).equals("[Missing value in variable assignment@-1]")) {
+            System.out.println("❌ Test failed: list input errors: expected no position but got " + positions(parser.getErrors()));
+        } else {
+            System.out.println("✔ Test passed: list input has no positions");
+        }
+    }
+
+    private static String messages(List<SyntaxError> errors){
+        StringBuilder result = new StringBuilder("[");
+        for (SyntaxError error : errors) {
+            if (result.length() > 1) {
+                result.append(", ");
+            }
+            result.append(error.getMessage());
+        }
+        return result.append("]").toString();
+    }
+
+    // each error as message@offset, to compare where errors were reported
+    private static String positions(List<SyntaxError> errors){
+        StringBuilder result = new StringBuilder("[");
+        for (SyntaxError error : errors) {
+            if (result.length() > 1) {
+                result.append(", ");
+            }
+            result.append(error.getMessage()).append('@').append(error.getOffset());
+        }
+        return result.append("]").toString();
+    }
+}
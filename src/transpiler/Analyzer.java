@@ -1,18 +1,27 @@
 package transpiler;
 
 import java.util.List;
+import parser.Expr;
 import parser.Stmt;
 
 public class Analyzer {
+    private Resolver resolver;
     private SemanticAnalyzer semanticAnalyzer;
     
     public Analyzer() {
+        this.resolver = new Resolver();
         this.semanticAnalyzer = new SemanticAnalyzer();
     }
     
     public void analyze(List<Stmt> statements) {
         for (Stmt stmt : statements) {
+            // statement by statement, so both passes have the same scopes open when analysis stops at an error
+            resolver.resolve(stmt);
             semanticAnalyzer.analyze(stmt);
         }
     }
+
+    public Type typeOf(Expr expr) {
+        return semanticAnalyzer.typeOf(expr);
+    }
 }
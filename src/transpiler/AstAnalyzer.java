@@ -0,0 +1,338 @@
+package transpiler;
+
+import java.util.Arrays;
+import lexer.Token;
+import lexer.TokenType;
+import parser.Ast;
+
+// SemanticAnalyzer's checks over a flat Ast, with the same rules and messages, so a program read with
+// Parser.parseAst() is analyzed and generated without an object tree. Variables are keyed by the index
+// of their name in the Ast's string table, one id per name. The type found for each expression node
+// is kept by node id, see typeOf().
+public class AstAnalyzer {
+    // the prefix a node whose SemanticAnalyzer method catches and rethrows errors adds to their message
+    private static final String[] CONTEXT = new String[Ast.ERROR + 1];
+
+    static {
+        CONTEXT[Ast.GROUPING] = "Error in grouping expression: ";
+        CONTEXT[Ast.PRINT] = "Error in print statement: ";
+        CONTEXT[Ast.EXPR_STMT] = "Error in expression statement: ";
+    }
+
+    private final Ast ast;
+    private final Type[] types;
+    private final SymbolTable symbolTable = new SymbolTable();
+
+    public AstAnalyzer(Ast ast) {
+        this.ast = ast;
+        this.types = new Type[ast.size()];
+    }
+
+    // walks the Ast like CodeGenerator.generate(Ast), with a stack of the open nodes instead of recursion,
+    // so nesting depth costs no thread stack: enter() checks what comes before a node's children,
+    // afterChild() what is checked between them (if/while conditions and their scopes) and leave() the
+    // node itself once its children's types are in types[]. The checks run in the order
+    // SemanticAnalyzer makes them, so the first error found is the same.
+    public void analyze() {
+        int[] open = new int[16];
+        int depth = 1;
+        int node = ast.firstChild(Ast.PROGRAM);
+        try {
+            while (true) {
+                if (node >= 0) {
+                    enter(node);
+                    if (depth == open.length) {
+                        open = Arrays.copyOf(open, depth * 2);
+                    }
+                    open[depth++] = node;
+                    node = ast.firstChild(node);
+                } else if (depth > 1) {
+                    int done = open[--depth];
+                    leave(done);
+                    node = ast.nextSibling(done);
+                    afterChild(open[depth - 1], done, node);
+                } else {
+                    return;
+                }
+            }
+        } catch (RuntimeException e) {
+            throw wrap(e, open, depth);
+        }
+    }
+
+    // type of an expression node, null until analysis has checked it
+    public Type typeOf(int node) {
+        return types[node];
+    }
+
+    private void enter(int node) {
+        switch (ast.kind(node)) {
+            case Ast.VAR: {
+                Type varType = declaredType(node);
+                Type fullType = ast.isArray(node) ? varType.arrayOf(ast.dimensions(node)) : varType;
+                symbolTable.declareVariable(ast.nameId(node), ast.name(node), fullType);
+                break;
+            }
+            case Ast.BLOCK:
+                symbolTable.enterScope();
+                break;
+            case Ast.LITERAL: {
+                Type type = SemanticAnalyzer.literalType(ast.op(node));
+                if (type == null) {
+                    throw new RuntimeException("Unknown literal type: " + ast.op(node));
+                }
+                types[node] = type;
+                break;
+            }
+            case Ast.VARIABLE:
+                types[node] = lookup(node);
+                break;
+            case Ast.ASSIGNMENT:
+                // the target is looked up before the right side is analyzed
+                lookup(node);
+                break;
+        }
+    }
+
+    // next is the child after the one just checked, -1 after the last
+    private void afterChild(int node, int child, int next) {
+        boolean first = child == ast.firstChild(node);
+        switch (ast.kind(node)) {
+            case Ast.IF:
+                if (first) {
+                    try {
+                        SemanticAnalyzer.coerceToBoolean(types[child]);
+                    } catch (RuntimeException e) {
+                        throw new RuntimeException("If statement condition error: " + e.getMessage());
+                    }
+                } else {
+                    symbolTable.exitScope();
+                }
+                if (next >= 0) {
+                    symbolTable.enterScope();
+                }
+                break;
+            case Ast.WHILE:
+                if (first) {
+                    Type conditionType = types[child];
+                    if (!SemanticAnalyzer.isValidConditionType(conditionType)) {
+                        throw new RuntimeException("While statement condition must be coercible to boolean, got: " + conditionType);
+                    }
+                    try {
+                        SemanticAnalyzer.coerceToBoolean(conditionType);
+                    } catch (RuntimeException e) {
+                        throw new RuntimeException("While statement condition error: " + e.getMessage());
+                    }
+                    symbolTable.enterScope();
+                } else {
+                    symbolTable.exitScope();
+                }
+                break;
+            case Ast.ARRAY_LITERAL: {
+                Type elementType = types[ast.firstChild(node)];
+                if (elementType != types[child]) {
+                    throw new RuntimeException("Inconsistent types in array literal: " + elementType + " and " + types[child]);
+                }
+                break;
+            }
+            case Ast.NEW_ARRAY:
+                if (ast.kind(child) != Ast.EMPTY_DIMENSION && types[child] != Type.INT) {
+                    throw new RuntimeException("Array dimension must be an integer");
+                }
+                break;
+        }
+    }
+
+    private void leave(int node) {
+        switch (ast.kind(node)) {
+            case Ast.VAR:
+                checkInitializer(node);
+                break;
+            case Ast.BLOCK:
+                symbolTable.exitScope();
+                break;
+            case Ast.ASSIGNMENT:
+                types[node] = analyzeAssignment(node);
+                break;
+            case Ast.BINARY:
+                types[node] = analyzeBinary(node);
+                break;
+            case Ast.UNARY:
+                types[node] = analyzeUnary(node);
+                break;
+            case Ast.POSTFIX:
+                types[node] = analyzePostfix(node);
+                break;
+            case Ast.GROUPING:
+                types[node] = types[ast.firstChild(node)];
+                break;
+            case Ast.ARRAY_LITERAL:
+                // like SemanticAnalyzer, which never sets hasElements: the element type is not kept
+                types[node] = Type.UNKNOWN.arrayOf(1);
+                break;
+            case Ast.NEW_ARRAY:
+                types[node] = declaredType(node).arrayOf(ast.childCount(node));
+                break;
+        }
+    }
+
+    // an error passes out through every open node; the ones SemanticAnalyzer catches and rethrows it in
+    // add their context, outermost first, so the message is the one the tree analysis gives
+    private RuntimeException wrap(RuntimeException e, int[] open, int depth) {
+        StringBuilder message = new StringBuilder();
+        for (int i = 1; i < depth; i++) {
+            String context = CONTEXT[ast.kind(open[i])];
+            if (context != null) {
+                message.append(context);
+            }
+        }
+        if (message.length() == 0) {
+            return e;
+        }
+        return new RuntimeException(message.append(e.getMessage()).toString());
+    }
+
+    private Type lookup(int node) {
+        Type type = symbolTable.lookup(ast.nameId(node));
+        if (type == null) {
+            throw new RuntimeException("Undeclared variable: " + ast.name(node));
+        }
+        return type;
+    }
+
+    private void checkInitializer(int node) {
+        int initializer = ast.firstChild(node);
+        if (initializer < 0) {
+            return;
+        }
+        Type varType = declaredType(node);
+        boolean isArray = ast.isArray(node);
+        Type inferredType = types[initializer];
+        if (ast.kind(initializer) == Ast.NEW_ARRAY) {
+            if (!isArray) {
+                throw new RuntimeException("Cannot initialize non-array variable with array expression");
+            }
+            Type arrayBaseType = declaredType(initializer);
+            if (arrayBaseType != varType) {
+                throw new RuntimeException("Array type mismatch: variable declared as " + varType + "[] but initialized with " + arrayBaseType + "[]");
+            }
+        } else if (ast.kind(initializer) == Ast.ARRAY_LITERAL) {
+            if (!isArray) {
+                throw new RuntimeException("Cannot initialize non-array variable with array literal");
+            }
+            int expectedDimensions = ast.dimensions(node);
+            int actualDimensions = inferredType.dimensions();
+            Type inferredBaseType = inferredType.base();
+            if (varType != inferredBaseType) {
+                throw new RuntimeException("Array base type mismatch: expected " + varType + " but got " + inferredBaseType);
+            }
+            if (expectedDimensions != actualDimensions) {
+                throw new RuntimeException("Array dimension mismatch: declared as " + expectedDimensions + " dimensions but initialized with " + actualDimensions + " dimensions");
+            }
+        } else if (isArray) {
+            throw new RuntimeException("Array variable must be initialized with array expression");
+        } else if (inferredType != varType) {
+            throw new RuntimeException("Type mismatch: expected " + varType + " but got " + inferredType);
+        }
+    }
+
+    private Type analyzeUnary(int node) {
+        int operand = ast.firstChild(node);
+        Type right = types[operand];
+        switch (ast.op(node)) {
+            case MINUS:
+                if (!right.isNumeric()) {
+                    throw new RuntimeException("Unary '-' operator requires a numeric operand");
+                }
+                return right;
+            case NOT:
+                if (right != Type.BOOLEAN) {
+                    throw new RuntimeException("Unary '!' operator requires a boolean operand");
+                }
+                return Type.BOOLEAN;
+            case INCREMENT:
+            case DECREMENT:
+                if (!right.isNumeric()) {
+                    throw new RuntimeException("Prefix increment/decrement operator requires a numeric operand");
+                }
+                if (ast.kind(operand) != Ast.VARIABLE) {
+                    throw new RuntimeException("Prefix increment/decrement can only be applied to variables");
+                }
+                return right;
+            default:
+                throw new RuntimeException("Unsupported unary operator: " + Token.spelling(ast.op(node)));
+        }
+    }
+
+    private Type analyzePostfix(int node) {
+        int operand = ast.firstChild(node);
+        Type leftType = types[operand];
+        if (ast.kind(operand) != Ast.VARIABLE) {
+            throw new RuntimeException("Postfix operator can only be applied to vars.");
+        }
+        String operator = Token.spelling(ast.op(node));
+        switch (ast.op(node)) {
+            case INCREMENT:
+            case DECREMENT:
+                if (!leftType.isNumeric()) {
+                    throw new RuntimeException("Postfix operator '" + operator + "' requires a numeric operand.");
+                }
+                return leftType;
+            default:
+                throw new RuntimeException("Unsupported postfix operator: " + operator);
+        }
+    }
+
+    private Type analyzeAssignment(int node) {
+        Type expectedType = symbolTable.lookup(ast.nameId(node));
+        int right = ast.firstChild(node);
+        Type inferredType = types[right];
+        // x op= y is checked as x = x op y
+        if (ast.op(node) != TokenType.ASSIGN) {
+            inferredType = SemanticAnalyzer.arithmeticType(expectedType, inferredType);
+        }
+        if (expectedType.isArray() && (ast.kind(right) == Ast.NEW_ARRAY || ast.kind(right) == Ast.ARRAY_LITERAL)) {
+            if (expectedType.base() != inferredType.base()) {
+                throw new RuntimeException("Array type mismatch: expected base type " + expectedType.base() +
+                    " but got " + inferredType.base());
+            }
+            if (expectedType.dimensions() != inferredType.dimensions()) {
+                throw new RuntimeException("Array dimension mismatch: expected " + expectedType.dimensions() +
+                    " dimensions but got " + inferredType.dimensions());
+            }
+            return expectedType;
+        }
+        if (expectedType != inferredType) {
+            throw new RuntimeException("Type mismatch: expected " + expectedType + " but got " + inferredType);
+        }
+        return expectedType;
+    }
+
+    private Type analyzeBinary(int node) {
+        int left = ast.firstChild(node);
+        Type leftType = types[left];
+        Type rightType = types[ast.nextSibling(left)];
+        switch (SemanticAnalyzer.OPERATOR_CLASS[ast.op(node).ordinal()]) {
+            case SemanticAnalyzer.LOGICAL:
+                if (leftType != Type.BOOLEAN || rightType != Type.BOOLEAN) {
+                    throw new RuntimeException("Logical operators require boolean operands");
+                }
+                return Type.BOOLEAN;
+            case SemanticAnalyzer.COMPARISON:
+                if (!leftType.isNumeric() || !rightType.isNumeric()) {
+                    throw new RuntimeException("Comparison operators require numeric operands");
+                }
+                return Type.BOOLEAN;
+            case SemanticAnalyzer.ARITHMETIC:
+                return SemanticAnalyzer.arithmeticType(leftType, rightType);
+            default:
+                throw new RuntimeException("Unsupported binary operator: " + Token.spelling(ast.op(node)));
+        }
+    }
+
+    // declared type of a VAR node, element type of a NEW_ARRAY node
+    private Type declaredType(int node) {
+        Type type = Type.of(ast.op(node));
+        return type != null ? type : Type.base(ast.typeName(node));
+    }
+}
@@ -0,0 +1,115 @@
+package transpiler;
+
+import parser.*;
+import parser.exprs.*;
+import parser.stmts.*;
+
+// Finds the declaration every variable and assignment target refers to and stores it on the node
+// as (depth, slot): depth counts the scopes open at the declaration, slot is its position in that
+// scope. Scopes are opened exactly where SemanticAnalyzer opens them, so the analyzer reads a
+// resolved variable's type from its frame by index. Names that are not declared stay unresolved
+// and errors are left to the analyzer, this pass never throws on a bad program.
+public class Resolver {
+    private final SymbolTable symbolTable = new SymbolTable();
+
+    public void resolve(Stmt stmt) {
+        switch (stmt.kind()) {
+            case Stmt.VAR:
+                resolveVarStmt((VarStmt) stmt);
+                break;
+            case Stmt.IF: {
+                IfStmt ifStmt = (IfStmt) stmt;
+                resolveExpression(ifStmt.getCondition());
+                resolveInScope(ifStmt.getThenBranch());
+                if (ifStmt.getElseBranch() != null) {
+                    resolveInScope(ifStmt.getElseBranch());
+                }
+                break;
+            }
+            case Stmt.WHILE: {
+                WhileStmt whileStmt = (WhileStmt) stmt;
+                resolveExpression(whileStmt.getCondition());
+                resolveInScope(whileStmt.getBody());
+                break;
+            }
+            case Stmt.BLOCK:
+                symbolTable.enterScope();
+                for (Stmt inner : ((BlockStmt) stmt).getStatements()) {
+                    resolve(inner);
+                }
+                symbolTable.exitScope();
+                break;
+            case Stmt.PRINT:
+                resolveExpression(((PrintStmt) stmt).getExpr());
+                break;
+            case Stmt.EXPR:
+                resolveExpression(((ExprStmt) stmt).getExpr());
+                break;
+        }
+    }
+
+    private void resolveInScope(Stmt stmt) {
+        symbolTable.enterScope();
+        resolve(stmt);
+        symbolTable.exitScope();
+    }
+
+    private void resolveVarStmt(VarStmt stmt) {
+        int symbol = stmt.getName().getSymbol();
+        // a second declaration in one scope is an analyzer error, the first one keeps the slot
+        if (!symbolTable.isDeclaredInCurrentScope(symbol)) {
+            Type type = Type.of(stmt.getType());
+            symbolTable.declareVariable(symbol, stmt.getName().getValue(), stmt.isArray() ? type.arrayOf(stmt.getDimensions()) : type);
+        }
+        if (stmt.getInitialzer() != null) {
+            resolveExpression(stmt.getInitialzer());
+        }
+    }
+
+    // binding -1 leaves the node unresolved, also when an earlier run had resolved it
+    private void resolveExpression(Expr expr) {
+        if (expr == null) {
+            return;
+        }
+        switch (expr.kind()) {
+            case Expr.VARIABLE: {
+                VariableExpr var = (VariableExpr) expr;
+                long binding = symbolTable.binding(var.getSymbol());
+                var.resolve((int) (binding >> 32), (int) binding);
+                break;
+            }
+            case Expr.ASSIGNMENT: {
+                AssignmentExpr assign = (AssignmentExpr) expr;
+                long binding = symbolTable.binding(assign.getName().getSymbol());
+                assign.resolve((int) (binding >> 32), (int) binding);
+                resolveExpression(assign.getRight());
+                break;
+            }
+            case Expr.BINARY: {
+                BinaryExpr binary = (BinaryExpr) expr;
+                resolveExpression(binary.getLeft());
+                resolveExpression(binary.getRight());
+                break;
+            }
+            case Expr.UNARY:
+                resolveExpression(((UnaryExpr) expr).getRight());
+                break;
+            case Expr.POSTFIX:
+                resolveExpression(((PostfixExpr) expr).getOperand());
+                break;
+            case Expr.GROUPING:
+                resolveExpression(((GroupingExpr) expr).getExpr());
+                break;
+            case Expr.ARRAY_LITERAL:
+                for (Expr element : ((ArrayLiteralExpr) expr).getElements()) {
+                    resolveExpression(element);
+                }
+                break;
+            case Expr.NEW_ARRAY:
+                for (Expr dimension : ((NewArrayExpr) expr).getDimensions()) {
+                    resolveExpression(dimension);
+                }
+                break;
+        }
+    }
+}
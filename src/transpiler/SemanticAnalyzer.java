@@ -1,12 +1,38 @@
 package transpiler;
 
+import java.util.IdentityHashMap;
+import java.util.Map;
 import lexer.TokenType;
 import parser.*;
 import parser.exprs.*;
 import parser.stmts.*;
 
 public class SemanticAnalyzer{
+    // how analyzeBinaryExpr treats each operator, indexed by TokenType ordinal
+    static final int UNSUPPORTED = 0;
+    static final int LOGICAL = 1;
+    static final int COMPARISON = 2;
+    static final int ARITHMETIC = 3;
+    static final int[] OPERATOR_CLASS = new int[TokenType.values().length];
+
+    static {
+        OPERATOR_CLASS[TokenType.AND.ordinal()] = LOGICAL;
+        OPERATOR_CLASS[TokenType.OR.ordinal()] = LOGICAL;
+        OPERATOR_CLASS[TokenType.LESS_THAN.ordinal()] = COMPARISON;
+        OPERATOR_CLASS[TokenType.LESS_THAN_EQUALS.ordinal()] = COMPARISON;
+        OPERATOR_CLASS[TokenType.GREATER_THAN.ordinal()] = COMPARISON;
+        OPERATOR_CLASS[TokenType.GREATER_THAN_EQUALS.ordinal()] = COMPARISON;
+        OPERATOR_CLASS[TokenType.PLUS.ordinal()] = ARITHMETIC;
+        OPERATOR_CLASS[TokenType.MINUS.ordinal()] = ARITHMETIC;
+        OPERATOR_CLASS[TokenType.MULTIPLY.ordinal()] = ARITHMETIC;
+        OPERATOR_CLASS[TokenType.DIVIDE.ordinal()] = ARITHMETIC;
+        OPERATOR_CLASS[TokenType.MOD.ordinal()] = ARITHMETIC;
+    }
+
     private SymbolTable symbolTable;
+    // type of every expression that checked out, by node identity: nodes are immutable and may be
+    // shared by shareSubtrees, so the type is kept here rather than on them
+    private final Map<Expr, Type> types = new IdentityHashMap<>();
 
     public SemanticAnalyzer() {
         this.symbolTable = new SymbolTable();
@@ -14,47 +40,79 @@ public class SemanticAnalyzer{
 
     //for statements(stmt)
     public void analyze(Stmt stmt) {
-        if (stmt instanceof VarStmt varStmt){
-            analyzeVarStmt(varStmt);
-        } else if (stmt instanceof  IfStmt ifStmt){
-            analyzeIfStmt(ifStmt);
-        } else if (stmt instanceof WhileStmt whileStmt){
-            analyzeWhileStmt(whileStmt);
-        } else if (stmt instanceof  BlockStmt blockStmt){
-            analyzeBlockStmt(blockStmt);
-        } else if (stmt instanceof PrintStmt printStmt){
-            analyzePrintStmt(printStmt);
-        } else if (stmt instanceof  ExprStmt exprStmt){
-            analyzeExprStmt(exprStmt);
+        switch (stmt.kind()) {
+            case Stmt.VAR:
+                analyzeVarStmt((VarStmt) stmt);
+                break;
+            case Stmt.IF:
+                analyzeIfStmt((IfStmt) stmt);
+                break;
+            case Stmt.WHILE:
+                analyzeWhileStmt((WhileStmt) stmt);
+                break;
+            case Stmt.BLOCK:
+                analyzeBlockStmt((BlockStmt) stmt);
+                break;
+            case Stmt.PRINT:
+                analyzePrintStmt((PrintStmt) stmt);
+                break;
+            case Stmt.EXPR:
+                analyzeExprStmt((ExprStmt) stmt);
+                break;
         }
     }
 
     // for expressions (exprs)
-    private String analyzeExpression(Expr expr) {
-        if (expr instanceof LiteralExpr literalExpr) {
-            return inferLiteralType(literalExpr);
-        } else if (expr instanceof VariableExpr variableExpr) {
-            String varName = variableExpr.getVar();
-            if (!symbolTable.isDeclared(varName)) {
-                throw new RuntimeException("Undeclared variable: " + varName);
+    // a subtree that was already checked (a shared one, or a second analysis of the same tree) is not walked again
+    private Type analyzeExpression(Expr expr) {
+        if (expr == null) {
+            throw new RuntimeException("Unsupported expression type");
+        }
+        Type type = types.get(expr);
+        if (type == null) {
+            type = inferExpressionType(expr);
+            types.put(expr, type);
+        }
+        return type;
+    }
+
+    // type found for expr, null if it has not been checked or did not check out
+    public Type typeOf(Expr expr) {
+        return types.get(expr);
+    }
+
+    private Type inferExpressionType(Expr expr) {
+        switch (expr.kind()) {
+            case Expr.LITERAL:
+                return inferLiteralType((LiteralExpr) expr);
+            case Expr.VARIABLE: {
+                VariableExpr variableExpr = (VariableExpr) expr;
+                // Retrieve stored type, by index when the Resolver has already found the declaration
+                Type type = variableExpr.isResolved()
+                        ? symbolTable.typeAt(variableExpr.getDepth(), variableExpr.getSlot())
+                        : symbolTable.lookup(variableExpr.getSymbol());
+                if (type == null) {
+                    throw new RuntimeException("Undeclared variable: " + variableExpr.getVar());
+                }
+                return type;
             }
-            return symbolTable.getVariableType(varName); // Retrieve stored type
-        } else if (expr instanceof AssignmentExpr assignmentExpr) {
-            return analyzeAssignmentExpr(assignmentExpr); 
-        } else if (expr instanceof BinaryExpr binaryExpr) {
-            return analyzeBinaryExpr(binaryExpr); // Call binary expression analysis
-        } else if (expr instanceof UnaryExpr unaryExpr) {
-            return analyzeUnaryExpr(unaryExpr);
-        } else if (expr instanceof ArrayLiteralExpr arrayLiteralExpr) {
-            return analyzeArrayLiteralExpr(arrayLiteralExpr);
-        } else if (expr instanceof NewArrayExpr newArrayExpr) {
-            return analyzeNewArrayExpr(newArrayExpr);
-        } else if (expr instanceof GroupingExpr groupingExpr){
-            return analyzeGroupingExpr(groupingExpr);
-        } else if (expr instanceof PostfixExpr postfixExpr){
-            return analyzePostfixExpr(postfixExpr);
+            case Expr.ASSIGNMENT:
+                return analyzeAssignmentExpr((AssignmentExpr) expr);
+            case Expr.BINARY:
+                return analyzeBinaryExpr((BinaryExpr) expr); // Call binary expression analysis
+            case Expr.UNARY:
+                return analyzeUnaryExpr((UnaryExpr) expr);
+            case Expr.ARRAY_LITERAL:
+                return analyzeArrayLiteralExpr((ArrayLiteralExpr) expr);
+            case Expr.NEW_ARRAY:
+                return analyzeNewArrayExpr((NewArrayExpr) expr);
+            case Expr.GROUPING:
+                return analyzeGroupingExpr((GroupingExpr) expr);
+            case Expr.POSTFIX:
+                return analyzePostfixExpr((PostfixExpr) expr);
+            default:
+                throw new RuntimeException("Unsupported expression type");
         }
-        throw new RuntimeException("Unsupported expression type");
     }
 
 //STMTS AHEAD
@@ -70,39 +128,24 @@ public class SemanticAnalyzer{
         symbolTable.exitScope();
     }
 
-    private boolean isValidConditionType(String type) {
-        switch (type) {
-            case "boolean":
-                return true; // already a boolean, no conversion
-            case "int":
-                return true;
-            case "float":
-                return true; // numeric types (0 = false, anything else = true)
-            case "string":
-                return true; // string types (empty = false, non-empty = true)
-            default:
-                return false; // other types, invalid
-        }
+    static boolean isValidConditionType(Type type) {
+        // boolean as is, numeric types (0 = false, anything else = true),
+        // string types (empty = false, non-empty = true); other types are invalid
+        return type == Type.BOOLEAN || type.isNumeric() || type == Type.STRING;
     }
 
     //needs testing, THROUGHLY
     private void analyzeVarStmt(VarStmt stmt){
         String varName = stmt.getName().getValue();
-        String varType = stmt.getType().getValue();
+        Type varType = Type.of(stmt.getType());
         boolean isArray = stmt.isArray();
 
-        String fullType = varType;
-        if (isArray) {
-            int dimensions = stmt.getDimensions();
-            for (int i = 0; i < dimensions; i++) {
-                fullType += "[]";
-            }
-        }
-        symbolTable.declareVariable(varName, fullType);
+        Type fullType = isArray ? varType.arrayOf(stmt.getDimensions()) : varType;
+        symbolTable.declareVariable(stmt.getName().getSymbol(), varName, fullType);
 
         if (stmt.getInitialzer() != null){
             Expr initializer = stmt.getInitialzer();
-            String inferredType = analyzeExpression(initializer);
+            Type inferredType = analyzeExpression(initializer);
 
             if (initializer instanceof NewArrayExpr){
                 // handle array initialization with new
@@ -110,8 +153,8 @@ public class SemanticAnalyzer{
                     throw new RuntimeException("Cannot initialize non-array variable with array expression");
                 }
                 
-                String arrayBaseType = ((NewArrayExpr)initializer).getType().getValue();
-                if (!arrayBaseType.equals(varType)){
+                Type arrayBaseType = Type.of(((NewArrayExpr)initializer).getType());
+                if (arrayBaseType != varType){
                     throw new RuntimeException("Array type mismatch: variable declared as " + varType + "[] but initialized with " + arrayBaseType + "[]");
                 }
             } else if (initializer instanceof ArrayLiteralExpr) {
@@ -120,13 +163,12 @@ public class SemanticAnalyzer{
                     throw new RuntimeException("Cannot initialize non-array variable with array literal");
                 }
                 int expectedDimensions = stmt.getDimensions();
-                int actualDimensions = countArrayDimensions(inferredType);
+                int actualDimensions = inferredType.dimensions();
                 
-                // Extract the base types for comparison (without [])
-                String baseVarType = varType;
-                String inferredBaseType = inferredType.replaceAll("\\[\\]", "");
-                if (!baseVarType.equals(inferredBaseType)) {
-                    throw new RuntimeException("Array base type mismatch: expected " + baseVarType + " but got " + inferredBaseType);
+                // Compare the base types (without [])
+                Type inferredBaseType = inferredType.base();
+                if (varType != inferredBaseType) {
+                    throw new RuntimeException("Array base type mismatch: expected " + varType + " but got " + inferredBaseType);
                 }
                 // Compare dimensions
                 if (expectedDimensions != actualDimensions) {
@@ -136,50 +178,56 @@ public class SemanticAnalyzer{
                 return;
             } else if (isArray) {
                 throw new RuntimeException("Array variable must be initialized with array expression");
-            } else if (!inferredType.equals(varType)) {
+            } else if (inferredType != varType) {
                 throw new RuntimeException("Type mismatch: expected " + varType + " but got " + inferredType);
             }
         }
     }
 
-    private String inferLiteralType(LiteralExpr expr){
-        TokenType type = expr.getTokenType();
+    private Type inferLiteralType(LiteralExpr expr){
+        Type type = literalType(expr.getTokenType());
+        return type != null ? type : inferTypeFromValue(expr.getValue());
+    }
 
+    // type of a literal token, null for a token that is not one
+    static Type literalType(TokenType type){
         switch (type) {
             case NUMBER_LITERALS:
-                return "int";
+                return Type.INT;
             case FLOAT_LITERALS:
-                return "float";
+                return Type.FLOAT;
             case DOUBLE_LITERALS:
-                return "double";
+                return Type.DOUBLE;
             case CHAR_LITERALS:
-                return "char";
+                return Type.CHAR;
             case STRING_LITERALS:
-                return "string";
+                return Type.STRING;
             case BOOLEAN_LITERALS:
-                return "boolean";
+                return Type.BOOLEAN;
             default:
-                return inferTypeFromValue(expr.getValue());
+                return null;
         }
     }
 
-    private String inferTypeFromValue(Object value){
-        if (value instanceof Double){
-            return ((Double)value == Math.floor((Double)value)) ? "int" : "float";
+    private Type inferTypeFromValue(Object value){
+        if (value instanceof Long){
+            return Type.INT;
+        } else if (value instanceof Double){
+            return ((Double)value == Math.floor((Double)value)) ? Type.INT : Type.FLOAT;
         } else if (value instanceof Boolean){
-            return "boolean";
+            return Type.BOOLEAN;
         } else if (value instanceof Character){
-            return "char";
+            return Type.CHAR;
         } else if (value instanceof String){
-            return "string";
+            return Type.STRING;
         }
         throw new RuntimeException("Unknown literal type: " + value.getClass());
     }
 
     private void analyzeIfStmt(IfStmt stmt){
-        String conditionType = analyzeExpression(stmt.getCondition());
+        Type conditionType = analyzeExpression(stmt.getCondition());
         try {
-            coerceExpressionToBoolean(stmt.getCondition(), conditionType);
+            coerceToBoolean(conditionType);
         } catch (RuntimeException e) {
             throw new RuntimeException("If statement condition error: " + e.getMessage());
         }
@@ -196,13 +244,13 @@ public class SemanticAnalyzer{
     }
 
     private void analyzeWhileStmt(WhileStmt stmt){
-        String conditionType = analyzeExpression(stmt.getCondition());
+        Type conditionType = analyzeExpression(stmt.getCondition());
         if (!isValidConditionType(conditionType)) {
             throw new RuntimeException("While statement condition must be coercible to boolean, got: " + conditionType);
         }
 
         try {
-            coerceExpressionToBoolean(stmt.getCondition(), conditionType);
+            coerceToBoolean(conditionType);
         } catch (RuntimeException e) {
             throw new RuntimeException("While statement condition error: " + e.getMessage());
         }
@@ -228,17 +276,17 @@ public class SemanticAnalyzer{
         }  
     }
 
-    private String coerceExpressionToBoolean(Expr expr, String exprType){
-        if (exprType.equals("boolean")){
+    static Type coerceToBoolean(Type exprType){
+        if (exprType == Type.BOOLEAN){
             return exprType;
         }
 
-        if(exprType.equals("int") || exprType.equals("float")){
-            return "boolean";
+        if(exprType.isNumeric()){
+            return Type.BOOLEAN;
         }
 
-        if(exprType.equals("string")){
-            return "boolean";
+        if(exprType == Type.STRING){
+            return Type.BOOLEAN;
         }
 
         throw new RuntimeException("Cannot coerce type " + exprType + " to boolean");
@@ -248,26 +296,25 @@ public class SemanticAnalyzer{
 //EXPRS AHEAD
 //!!EXPRESSIONS LAND!!
 
-    private String analyzeUnaryExpr(UnaryExpr expr){
-        String right = analyzeExpression(expr.getRight());
-        String operator = expr.getOperator().getValue();
+    private Type analyzeUnaryExpr(UnaryExpr expr){
+        Type right = analyzeExpression(expr.getRight());
 
-        switch (operator){
-            case "-":
-                if(!right.equals("int") && !right.equals("float")){
+        switch (expr.getOperator().getType()){
+            case MINUS:
+                if(!right.isNumeric()){
                     throw new RuntimeException("Unary '-' operator requires a numeric operand");
                 }
                 return right;
             
-            case "!":
-                if(!right.equals("boolean")){
+            case NOT:
+                if(right != Type.BOOLEAN){
                     throw new RuntimeException("Unary '!' operator requires a boolean operand");
                 }
-                return "boolean";
+                return Type.BOOLEAN;
 
-            case "++":
-            case "--":
-                if (!right.equals("int") && !right.equals("float")){
+            case INCREMENT:
+            case DECREMENT:
+                if (!right.isNumeric()){
                     throw new RuntimeException("Prefix increment/decrement operator requires a numeric operand");
                 }
                 if (!(expr.getRight() instanceof VariableExpr)){
@@ -276,12 +323,12 @@ public class SemanticAnalyzer{
                 return right;
 
             default:
-                throw new RuntimeException("Unsupported unary operator: " + operator);
+                throw new RuntimeException("Unsupported unary operator: " + expr.getOperator().getValue());
         }
     }
 
-    private String analyzePostfixExpr (PostfixExpr expr){
-        String leftType = analyzeExpression(expr.getOperand());
+    private Type analyzePostfixExpr (PostfixExpr expr){
+        Type leftType = analyzeExpression(expr.getOperand());
 
         if (!(expr.getOperand() instanceof VariableExpr)){
             throw new RuntimeException("Postfix operator can only be applied to vars.");
@@ -289,10 +336,10 @@ public class SemanticAnalyzer{
 
         String operator = expr.getOperator().getValue();
 
-        switch (operator){
-            case "++":
-            case "--":
-                if (!leftType.equals("int") && !leftType.equals("float")){
+        switch (expr.getOperator().getType()){
+            case INCREMENT:
+            case DECREMENT:
+                if (!leftType.isNumeric()){
                     throw new RuntimeException("Postfix operator '" + operator + "' requires a numeric operand.");
                 }
 
@@ -302,7 +349,7 @@ public class SemanticAnalyzer{
         }        
     }
 
-    private String analyzeGroupingExpr(GroupingExpr expr){
+    private Type analyzeGroupingExpr(GroupingExpr expr){
         try {
             return analyzeExpression(expr.getExpr());
         } catch (Exception e) {
@@ -310,78 +357,67 @@ public class SemanticAnalyzer{
         }
     }
 
-    private String analyzeArrayLiteralExpr(ArrayLiteralExpr expr){
-        String elementType = null;
+    private Type analyzeArrayLiteralExpr(ArrayLiteralExpr expr){
+        Type elementType = null;
         boolean hasElements = false;
         
         for (Expr element : expr.getElements()){
-            String currentType = analyzeExpression(element);
+            Type currentType = analyzeExpression(element);
 
             if (elementType == null){
                 elementType = currentType;
-            } else if (!elementType.equals(currentType)){
+            } else if (elementType != currentType){
                 throw new RuntimeException("Inconsistent types in array literal: " + elementType + " and " + currentType);
             }
         }
         if (!hasElements) {
-            return "unknown[]";  // An empty array has unknown element type
+            return Type.UNKNOWN.arrayOf(1);  // An empty array has unknown element type
         }
-        return elementType + "[]";
+        return elementType.arrayOf(1);
     }
 
-    private String analyzeNewArrayExpr(NewArrayExpr expr){
-        String baseType = expr.getType().getValue();
+    private Type analyzeNewArrayExpr(NewArrayExpr expr){
+        Type baseType = Type.of(expr.getType());
 
         for (Expr dimension : expr.getDimensions()){
             if (dimension != null){
-                String dimensionType = analyzeExpression(dimension);
-                if (!dimensionType.equals("int")){
+                Type dimensionType = analyzeExpression(dimension);
+                if (dimensionType != Type.INT){
                     throw new RuntimeException("Array dimension must be an integer");
                 }
             }
         }
 
-        StringBuilder arrayType = new StringBuilder(baseType);
-        for (int i  = 0; i < expr.getDimensions().size(); i++){
-            arrayType.append("[]");
-        }
-
-        return arrayType.toString();
-    }
-
-    private int countArrayDimensions(String type) {
-        int count = 0;
-        int index = 0;
-        while ((index = type.indexOf("[]", index)) != -1) {
-            count++;
-            index += 2; // Move past the current "[]"
-        }
-        return count;
+        return baseType.arrayOf(expr.getDimensions().size());
     }
 
-    private String analyzeAssignmentExpr(AssignmentExpr expr){
+    private Type analyzeAssignmentExpr(AssignmentExpr expr){
         String varName = expr.getName().getValue();
-        if (!symbolTable.isDeclared(varName)){
+        int symbol = expr.getName().getSymbol();
+        Type expectedType = expr.isResolved()
+                ? symbolTable.typeAt(expr.getDepth(), expr.getSlot())
+                : symbolTable.lookup(symbol);
+        if (expectedType == null){
             throw new RuntimeException("Undeclared variable: " + varName);
         }
     
-        String expectedType = symbolTable.getVariableType(varName);
-        String inferredType = analyzeExpression(expr.getRight());
+        Type inferredType = analyzeExpression(expr.getRight());
+        // x op= y is checked as x = x op y
+        if (expr.getAssign().getType() != TokenType.ASSIGN) {
+            inferredType = arithmeticType(expectedType, inferredType);
+        }
         
         //for array assignment
-        if (expectedType.contains("[]")) {
+        if (expectedType.isArray()) {
             // array vars
             if (expr.getRight() instanceof NewArrayExpr || expr.getRight() instanceof ArrayLiteralExpr) {
-                // Extract the base type by removing all array dimensions
-                String expectedBaseType = expectedType.replaceAll("\\[\\]", "");
-                String inferredBaseType = inferredType.replaceAll("\\[\\]", "");
-                
-                // Count dimensions in both types
-                int expectedDims = countArrayDimensions(expectedType);
-                int inferredDims = countArrayDimensions(inferredType);
+                Type expectedBaseType = expectedType.base();
+                Type inferredBaseType = inferredType.base();
+                int expectedDims = expectedType.dimensions();
+                int inferredDims = inferredType.dimensions();
                 
                 // Base types must match and dimensions must be the same
-                if (!expectedBaseType.equals(inferredBaseType)) {
+                if (expectedBaseType != inferredBaseType) {
                     throw new RuntimeException("Array type mismatch: expected base type " + expectedBaseType + 
                         " but got " + inferredBaseType);
                 }
@@ -394,34 +430,40 @@ public class SemanticAnalyzer{
                 return expectedType;
             }
         }
-        if (!expectedType.equals(inferredType)) {
+        if (expectedType != inferredType) {
             throw new RuntimeException("Type mismatch: expected " + expectedType + " but got " + inferredType);
         }
         return expectedType;
     }
 
-    private String analyzeBinaryExpr(BinaryExpr expr){
-        String leftType = analyzeExpression(expr.getLeft());
-        String rightType = analyzeExpression(expr.getRight());
-        String operator = expr.getOperator().getValue();
+    private Type analyzeBinaryExpr(BinaryExpr expr){
+        Type leftType = analyzeExpression(expr.getLeft());
+        Type rightType = analyzeExpression(expr.getRight());
 
-        if (operator.equals("&&") || operator.equals("||")){
-            if (!leftType.equals("boolean") || !rightType.equals("boolean")){
-                throw new RuntimeException("Logical operators require boolean operands");
-            }
-            return "boolean";
-        } else if (operator.matches("<|<=|>|>=")){
-            if (!(leftType.equals("int") || leftType.equals("float")) || !(rightType.equals("int") || rightType.equals("float"))){
-                throw new RuntimeException("Comparison operators require numeric operands");
-            }
-            return "boolean";
-        } else if (operator.matches("\\+|\\-|\\*|\\/")) {
-            if (!leftType.equals("int") && !leftType.equals("float") || !rightType.equals("int") && !rightType.equals("float")) {
-                throw new RuntimeException("Arithmetic operators require numeric operands");
-            }
-            return (leftType.equals("float") || rightType.equals("float")) ? "float" : "int"; // Preserve type promotion
+        switch (OPERATOR_CLASS[expr.getOperator().getType().ordinal()]) {
+            case LOGICAL:
+                if (leftType != Type.BOOLEAN || rightType != Type.BOOLEAN){
+                    throw new RuntimeException("Logical operators require boolean operands");
+                }
+                return Type.BOOLEAN;
+            case COMPARISON:
+                if (!leftType.isNumeric() || !rightType.isNumeric()){
+                    throw new RuntimeException("Comparison operators require numeric operands");
+                }
+                return Type.BOOLEAN;
+            case ARITHMETIC:
+                return arithmeticType(leftType, rightType);
+            default:
+                throw new RuntimeException("Unsupported binary operator: " + expr.getOperator().getValue());
+        }
+    }
+
+    // result of + - * / % and of their compound assignments
+    static Type arithmeticType(Type leftType, Type rightType){
+        if (!leftType.isNumeric() || !rightType.isNumeric()) {
+            throw new RuntimeException("Arithmetic operators require numeric operands");
         }
-        throw new RuntimeException("Unsupported binary operator: " + operator);
+        return (leftType == Type.FLOAT || rightType == Type.FLOAT) ? Type.FLOAT : Type.INT; // Preserve type promotion
     }
 
 }
\ No newline at end of file
@@ -1,67 +1,184 @@
 package transpiler;
 
-import java.util.HashMap;
-import java.util.Map;
-import java.util.Stack;
+import java.util.Arrays;
 
+// variables are keyed by their SymbolPool id, so lookups compare ints instead of hashing names.
+// One open addressing table holds the innermost binding of every symbol; declaring in a scope
+// logs the binding it hides, and exitScope replays that log backwards, so a lookup is one probe
+// however deep the scopes go and nothing of a scope stays around after it is left.
+// Each declaration also gets a slot, its position in its scope, and its type is kept in that
+// scope's frame too, so a reference resolved to (depth, slot) finds it without hashing.
 public class SymbolTable {
-    private Map<String, Map<String, String>> scopes;
+    // marks a free entry in keys; pool ids start at 0 and -1 is a real key too (a name without an id)
+    private static final int EMPTY = Integer.MIN_VALUE;
 
-    private Stack<String> scopeStack;
-    private int scopeCounter;
+    private int[] keys = new int[16];
+    private Type[] types = new Type[16];
+    // scope depth of the binding in types, 0 is the global scope
+    private int[] depths = new int[16];
+    private int[] slots = new int[16];
+    private int size;
+
+    // undo log: the binding each declaration replaced, null type when there was none
+    private int[] undoSymbols = new int[16];
+    private Type[] undoTypes = new Type[16];
+    private int[] undoDepths = new int[16];
+    private int[] undoSlots = new int[16];
+    private int undoSize;
+
+    // undo log position at the start of each open scope
+    private int[] scopeStarts = new int[8];
+    // types of each open scope's declarations by slot, and how many it has
+    private Type[][] frames = new Type[8][];
+    private int[] frameSizes = new int[8];
+    private int depth;
 
     public SymbolTable() {
-        this.scopes = new HashMap<>();
-        this.scopeStack = new Stack<>();
-        this.scopeCounter = 0;
-        // Create global scope
-        enterScope();
+        Arrays.fill(keys, EMPTY);
+        frames[0] = new Type[8];
     }
 
     public void enterScope() {
-        String scopeName = "scope" + scopeCounter++;
-        scopes.put(scopeName, new HashMap<>());
-        scopeStack.push(scopeName);
+        if (depth + 1 == scopeStarts.length) {
+            scopeStarts = Arrays.copyOf(scopeStarts, scopeStarts.length * 2);
+            frames = Arrays.copyOf(frames, frames.length * 2);
+            frameSizes = Arrays.copyOf(frameSizes, frameSizes.length * 2);
+        }
+        scopeStarts[++depth] = undoSize;
+        if (frames[depth] == null) {
+            frames[depth] = new Type[8];
+        }
     }
 
+    // the global scope is never left
     public void exitScope() {
-        if (scopeStack.size() > 1) {
-            scopeStack.pop();
+        if (depth == 0) {
+            return;
+        }
+        Arrays.fill(frames[depth], 0, frameSizes[depth], null);
+        frameSizes[depth] = 0;
+        int start = scopeStarts[depth--];
+        while (undoSize > start) {
+            undoSize--;
+            int index = find(undoSymbols[undoSize]);
+            types[index] = undoTypes[undoSize];
+            depths[index] = undoDepths[undoSize];
+            slots[index] = undoSlots[undoSize];
+            undoTypes[undoSize] = null;
         }
     }
 
-    public void declareVariable(String name, String type){
-        String currentScope = scopeStack.peek();
-        Map<String, String> currentScopeVars = scopes.get(currentScope);
-        
-        if (currentScopeVars.containsKey(name)) {
+    public void declareVariable(int symbol, String name, Type type){
+        int index = find(symbol);
+        if (types[index] != null && depths[index] == depth) {
             throw new RuntimeException("Variable '" + name + "' is already declared in this scope.");
         }
-        currentScopeVars.put(name, type);
+        log(symbol, types[index], depths[index], slots[index]);
+        if (keys[index] == EMPTY) {
+            keys[index] = symbol;
+            size++;
+        }
+        types[index] = type;
+        depths[index] = depth;
+        slots[index] = addToFrame(type);
+        if (size * 2 > keys.length) {
+            grow();
+        }
     }
 
-    public String getVariableType(String name){
-        for (int i = scopeStack.size() - 1; i >= 0; i--) {
-            String scope = scopeStack.get(i);
-            Map<String, String> scopeVars = scopes.get(scope);
-            
-            if (scopeVars.containsKey(name)) {
-                return scopeVars.get(name);
-            }
+    public boolean isDeclaredInCurrentScope(int symbol) {
+        int index = find(symbol);
+        return types[index] != null && depths[index] == depth;
+    }
+
+    // type of the innermost binding, null if the symbol is not declared in any open scope
+    public Type lookup(int symbol) {
+        return types[find(symbol)];
+    }
+
+    // innermost binding as depth << 32 | slot, -1 if the symbol is not declared in any open scope
+    public long binding(int symbol) {
+        int index = find(symbol);
+        if (types[index] == null) {
+            return -1;
+        }
+        return (long) depths[index] << 32 | slots[index];
+    }
+
+    // type declared at (depth, slot), null if that scope is not open or has no such slot
+    public Type typeAt(int depth, int slot) {
+        if (depth > this.depth || slot >= frameSizes[depth]) {
+            return null;
+        }
+        return frames[depth][slot];
+    }
+
+    public Type getVariableType(int symbol){
+        Type type = lookup(symbol);
+        if (type == null) {
+            throw new RuntimeException("Variable with symbol id " + symbol + " is not declared.");
+        }
+        return type;
+    }
+
+    public boolean isDeclared(int symbol) {
+        return lookup(symbol) != null;
+    }
+
+    private int addToFrame(Type type) {
+        int slot = frameSizes[depth]++;
+        if (slot == frames[depth].length) {
+            frames[depth] = Arrays.copyOf(frames[depth], slot * 2);
+        }
+        frames[depth][slot] = type;
+        return slot;
+    }
+
+    private void log(int symbol, Type type, int typeDepth, int typeSlot) {
+        if (undoSize == undoSymbols.length) {
+            undoSymbols = Arrays.copyOf(undoSymbols, undoSize * 2);
+            undoTypes = Arrays.copyOf(undoTypes, undoSize * 2);
+            undoDepths = Arrays.copyOf(undoDepths, undoSize * 2);
+            undoSlots = Arrays.copyOf(undoSlots, undoSize * 2);
+        }
+        undoSymbols[undoSize] = symbol;
+        undoTypes[undoSize] = type;
+        undoDepths[undoSize] = typeDepth;
+        undoSlots[undoSize] = typeSlot;
+        undoSize++;
+    }
+
+    // table index holding symbol, or the empty one it would go in; a key stays once placed, so probing never breaks
+    private int find(int symbol) {
+        int mask = keys.length - 1;
+        int index = (symbol * 0x9E3779B9) >>> 16 & mask;
+        while (keys[index] != EMPTY && keys[index] != symbol) {
+            index = (index + 1) & mask;
         }
-        
-        throw new RuntimeException("Variable '" + name + "' is not declared.");
+        return index;
     }
 
-    public boolean isDeclared(String name) {
-        for (int i = scopeStack.size() - 1; i >= 0; i--) {
-            String scope = scopeStack.get(i);
-            Map<String, String> scopeVars = scopes.get(scope);
-            
-            if (scopeVars.containsKey(name)) {
-                return true;
+    private void grow() {
+        int[] oldKeys = keys;
+        Type[] oldTypes = types;
+        int[] oldDepths = depths;
+        int[] oldSlots = slots;
+        keys = new int[oldKeys.length * 2];
+        types = new Type[oldKeys.length * 2];
+        depths = new int[oldKeys.length * 2];
+        slots = new int[oldKeys.length * 2];
+        Arrays.fill(keys, EMPTY);
+        size = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            // symbols whose scopes were all left are dropped here
+            if (oldTypes[i] != null) {
+                int index = find(oldKeys[i]);
+                keys[index] = oldKeys[i];
+                types[index] = oldTypes[i];
+                depths[index] = oldDepths[i];
+                slots[index] = oldSlots[i];
+                size++;
             }
         }
-        return false;
     }
-}
\ No newline at end of file
+}
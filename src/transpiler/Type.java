@@ -0,0 +1,108 @@
+package transpiler;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import lexer.Token;
+import lexer.TokenType;
+
+// A type the analyzer works with: a base type plus a number of array dimensions.
+// Every type exists once, so types are compared with == and nothing is parsed or concatenated
+// while checking; toString() gives the old spelling ("int", "float[][]") for error messages.
+public final class Type {
+    private static final Map<String, Type> BASES = new HashMap<>();
+
+    public static final Type INT = base("int");
+    public static final Type FLOAT = base("float");
+    public static final Type DOUBLE = base("double");
+    public static final Type CHAR = base("char");
+    public static final Type STRING = base("string");
+    public static final Type BOOLEAN = base("boolean");
+    // element type of an array literal whose elements are not known
+    public static final Type UNKNOWN = base("unknown");
+
+    private final Type base;
+    private final int dimensions;
+    private final String name;
+    // this type with 0, 1, 2... dimensions, filled on demand; only kept on base types
+    private Type[] arrays;
+
+    private Type(Type base, int dimensions, String name) {
+        this.base = base != null ? base : this;
+        this.dimensions = dimensions;
+        this.name = name;
+    }
+
+    // the base type with this name, e.g. the keyword of a declaration
+    public static synchronized Type base(String name) {
+        Type type = BASES.get(name);
+        if (type == null) {
+            type = new Type(null, 0, name);
+            type.arrays = new Type[] {type};
+            BASES.put(name, type);
+        }
+        return type;
+    }
+
+    // type named by a declaration or new-array keyword, the common keywords without a map lookup
+    public static Type of(Token keyword) {
+        Type type = of(keyword.getType());
+        return type != null ? type : base(keyword.getValue());
+    }
+
+    // type of one of the common type keywords, null for any other token
+    public static Type of(TokenType keyword) {
+        switch (keyword) {
+            case INT:
+                return INT;
+            case FLOAT:
+                return FLOAT;
+            case BOOLEAN:
+                return BOOLEAN;
+            case CHAR:
+                return CHAR;
+            default:
+                return null;
+        }
+    }
+
+    // this type with dimensions more array dimensions
+    public Type arrayOf(int dimensions) {
+        if (dimensions == 0) {
+            return this;
+        }
+        return base.withDimensions(this.dimensions + dimensions);
+    }
+
+    private synchronized Type withDimensions(int dimensions) {
+        if (dimensions >= arrays.length) {
+            arrays = Arrays.copyOf(arrays, Math.max(dimensions + 1, arrays.length * 2));
+        }
+        if (arrays[dimensions] == null) {
+            arrays[dimensions] = new Type(this, dimensions, name + "[]".repeat(dimensions));
+        }
+        return arrays[dimensions];
+    }
+
+    // the type without its array dimensions
+    public Type base() {
+        return base;
+    }
+
+    public int dimensions() {
+        return dimensions;
+    }
+
+    public boolean isArray() {
+        return dimensions > 0;
+    }
+
+    public boolean isNumeric() {
+        return this == INT || this == FLOAT;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}